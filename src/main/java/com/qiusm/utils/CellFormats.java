@@ -0,0 +1,286 @@
+package com.qiusm.utils;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个工作簿的 样式下标 -> 数字格式 表 <br>
+ * 1. 解析 sheet 时只用到样式里的数字格式，读一次放进数组，按 c 标签的 s 属性直接取 <br>
+ * 2. 可以从 POI 的 {@link StylesTable} 构建，也可以直接解析 styles.xml（numFmts 和 cellXfs） <br>
+ * 3. 下标越界时按没有样式处理：formatIndex 为 -1，formatString 为 null，原样输出 <br>
+ * 4. 每个样式预先编译好 {@link ValueFormatter}：内置日期、常见整数/小数/百分比、ISO 日期走快速实现，
+ * 其余交给 {@link DataFormatter}；相同格式的样式共用一个 <br>
+ * 5. 快速实现的输出与原来逐个单元格调用 HSSFDateUtil、DataFormatter 的结果一致 <br>
+ * 6. 内部的 DecimalFormat、DataFormatter 不是线程安全的，每次解析新建一个实例 <br>
+ *
+ * @author qiushengming
+ */
+final class CellFormats {
+
+    /**
+     * 单元格数值的格式化
+     */
+    interface ValueFormatter {
+        /**
+         * @param raw v 标签里的原始数值
+         * @return 格式化后的文本
+         */
+        String format(String raw);
+    }
+
+    /**
+     * 没有样式或样式没有数字格式时原样输出
+     */
+    static final ValueFormatter RAW = raw -> raw;
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Excel 序列号 1 是 1900-01-01；60 是不存在的 1900-02-29，61 开始要减一天
+     */
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 31);
+
+    private static final int FIRST_DAY_AFTER_LEAP_BUG = 61;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * 可以直接用 DecimalFormat 的数字格式
+     */
+    private static final String[] DECIMAL_PATTERNS = {
+            "0", "0.0", "0.00", "0.000", "#,##0", "#,##0.0", "#,##0.00", "0%", "0.0%", "0.00%"};
+
+    /**
+     * Excel 日期格式（小写） -> java.time 格式
+     */
+    private static final Map<String, String> DATE_PATTERNS = new HashMap<>();
+
+    static {
+        DATE_PATTERNS.put("yyyy-mm-dd", "yyyy-MM-dd");
+        DATE_PATTERNS.put("yyyy-mm-dd hh:mm", "yyyy-MM-dd HH:mm");
+        DATE_PATTERNS.put("yyyy-mm-dd hh:mm:ss", "yyyy-MM-dd HH:mm:ss");
+        DATE_PATTERNS.put("yyyy/mm/dd", "yyyy/MM/dd");
+        DATE_PATTERNS.put("yyyy/mm/dd hh:mm", "yyyy/MM/dd HH:mm");
+        DATE_PATTERNS.put("yyyy/mm/dd hh:mm:ss", "yyyy/MM/dd HH:mm:ss");
+    }
+
+    static final CellFormats EMPTY = new CellFormats(new short[0], new String[0]);
+
+    private final short[] formatIndexes;
+
+    private final String[] formatStrings;
+
+    private final boolean[] dates;
+
+    private final ValueFormatter[] formatters;
+
+    private final DataFormatter dataFormatter = new DataFormatter();
+
+    private final Map<String, ValueFormatter> compiled = new HashMap<>();
+
+    private SimpleDateFormat slowDateFormat;
+
+    CellFormats(short[] formatIndexes, String[] formatStrings) {
+        this.formatIndexes = formatIndexes;
+        this.formatStrings = formatStrings;
+        this.dates = new boolean[formatIndexes.length];
+        this.formatters = new ValueFormatter[formatIndexes.length];
+        for (int i = 0; i < formatIndexes.length; i++) {
+            dates[i] = DateUtil.isADateFormat(formatIndexes[i], formatStrings[i]);
+            formatters[i] = compile(formatIndexes[i], formatStrings[i]);
+        }
+    }
+
+    static CellFormats of(StylesTable styles) {
+        int count = styles.getNumCellStyles();
+        short[] indexes = new short[count];
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            XSSFCellStyle style = styles.getStyleAt(i);
+            indexes[i] = style.getDataFormat();
+            strings[i] = style.getDataFormatString();
+            if (strings[i] == null) {
+                strings[i] = BuiltinFormats.getBuiltinFormat(indexes[i]);
+            }
+        }
+        return new CellFormats(indexes, strings);
+    }
+
+    short getFormatIndex(int styleIndex) {
+        return inRange(styleIndex) ? formatIndexes[styleIndex] : -1;
+    }
+
+    String getFormatString(int styleIndex) {
+        return inRange(styleIndex) ? formatStrings[styleIndex] : null;
+    }
+
+    /**
+     * @return 样式的数字格式是否是日期（含自定义日期格式）
+     */
+    boolean isDate(int styleIndex) {
+        return inRange(styleIndex) && dates[styleIndex];
+    }
+
+    ValueFormatter getFormatter(int styleIndex) {
+        return inRange(styleIndex) ? formatters[styleIndex] : RAW;
+    }
+
+    private boolean inRange(int styleIndex) {
+        return styleIndex >= 0 && styleIndex < formatIndexes.length;
+    }
+
+    /**
+     * 与原来的判断顺序一致：内置日期格式 -> 有格式字符串 -> 原样
+     */
+    private ValueFormatter compile(short formatIndex, String formatString) {
+        if (DateUtil.isInternalDateFormat(formatIndex)) {
+            return compiled.computeIfAbsent("internal-date", k -> this::formatInternalDate);
+        }
+        if (formatString == null) {
+            return RAW;
+        }
+        return compiled.computeIfAbsent(formatIndex + "|" + formatString,
+                k -> compileFormatString(formatIndex, formatString));
+    }
+
+    private ValueFormatter compileFormatString(short formatIndex, String formatString) {
+        for (String pattern : DECIMAL_PATTERNS) {
+            if (pattern.equals(formatString)) {
+                DecimalFormat decimalFormat = new DecimalFormat(pattern,
+                        DecimalFormatSymbols.getInstance(LocaleUtil.getUserLocale()));
+                DataFormatter.setExcelStyleRoundingMode(decimalFormat);
+                // 与 DataFormatter 相同，先按 Excel 的 15 位有效数字转成文本再舍入
+                return raw -> decimalFormat.format(
+                        new BigDecimal(NumberToTextConverter.toText(Double.parseDouble(raw))));
+            }
+        }
+        String datePattern = DATE_PATTERNS.get(formatString.toLowerCase());
+        if (datePattern != null) {
+            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern(datePattern);
+            return raw -> {
+                String formatted = formatDate(Double.parseDouble(raw), dateFormatter);
+                return formatted != null ? formatted
+                        : dataFormatter.formatRawCellContents(Double.parseDouble(raw), formatIndex, formatString);
+            };
+        }
+        if ("General".equalsIgnoreCase(formatString)) {
+            return raw -> isShortInteger(raw) ? raw
+                    : dataFormatter.formatRawCellContents(Double.parseDouble(raw), formatIndex, formatString);
+        }
+        return raw -> dataFormatter.formatRawCellContents(Double.parseDouble(raw), formatIndex, formatString);
+    }
+
+    /**
+     * 内置日期格式统一输出 yyyy-MM-dd HH:mm:ss
+     */
+    private String formatInternalDate(String raw) {
+        double value = Double.parseDouble(raw);
+        String formatted = formatDate(value, DATE_TIME);
+        if (formatted != null) {
+            return formatted;
+        }
+        // 1900-03-01 之前和负数走原来的逻辑
+        if (slowDateFormat == null) {
+            slowDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        }
+        return slowDateFormat.format(DateUtil.getJavaDate(value));
+    }
+
+    /**
+     * 与 DateUtil.getJavaDate 相同的换算（毫秒四舍五入），但不经过 Calendar 和时区
+     *
+     * @return 不在快速范围内时返回 null
+     */
+    private static String formatDate(double value, DateTimeFormatter formatter) {
+        if (!(value >= FIRST_DAY_AFTER_LEAP_BUG) || value > 2958465) {
+            return null;
+        }
+        int wholeDays = (int) Math.floor(value);
+        long millis = (long) ((value - wholeDays) * DAY_MILLIS + 0.5);
+        return EXCEL_EPOCH.plusDays(wholeDays - 1L).atStartOfDay()
+                .plusNanos(millis * 1000000L)
+                .format(formatter);
+    }
+
+    /**
+     * General 格式下 11 位以内的整数原样显示
+     */
+    private static boolean isShortInteger(String raw) {
+        int start = raw.startsWith("-") ? 1 : 0;
+        int length = raw.length() - start;
+        if (length == 0 || length > 11) {
+            return false;
+        }
+        for (int i = start; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return length == 1 || raw.charAt(start) != '0';
+    }
+
+    /**
+     * 解析 styles.xml 的 SAX 处理器，解析完调用 {@link #build()}
+     */
+    static final class StylesHandler extends DefaultHandler {
+
+        private final Map<Integer, String> numberFormats = new HashMap<>();
+
+        private final List<Integer> cellXfs = new ArrayList<>();
+
+        private boolean inCellXfs;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("numFmt".equals(localName)) {
+                numberFormats.put(Integer.parseInt(attributes.getValue("numFmtId")),
+                        attributes.getValue("formatCode"));
+            } else if ("cellXfs".equals(localName)) {
+                inCellXfs = true;
+            } else if (inCellXfs && "xf".equals(localName)) {
+                String id = attributes.getValue("numFmtId");
+                cellXfs.add(id == null ? 0 : Integer.parseInt(id));
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("cellXfs".equals(localName)) {
+                inCellXfs = false;
+            }
+        }
+
+        CellFormats build() {
+            short[] indexes = new short[cellXfs.size()];
+            String[] strings = new String[cellXfs.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                int id = cellXfs.get(i);
+                indexes[i] = (short) id;
+                strings[i] = numberFormats.get(id);
+                if (strings[i] == null) {
+                    strings[i] = BuiltinFormats.getBuiltinFormat(id);
+                }
+            }
+            return new CellFormats(indexes, strings);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.qiusm.utils;
 
+import com.qiusm.utils.metrics.UtilsMetrics;
 import net.sourceforge.pinyin4j.PinyinHelper;
 import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
 import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
@@ -7,8 +8,34 @@ import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
 import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
 import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
 
+/**
+ * 汉字转拼音 <br>
+ * 常用汉字（\u4E00-\u9FA5）按输出格式缓存第一个读音，重复的字不再查 pinyin4j 的字典 <br>
+ * 埋点：utils.pinyin.conversions 转换次数，utils.pinyin.cache{result=hit|miss} 缓存命中
+ */
 public class Pinyin4jUtil {
 
+    private static final char CJK_START = '\u4E00';
+    private static final char CJK_END = '\u9FA5';
+
+    private static final HanyuPinyinOutputFormat UPPER_FORMAT = format(HanyuPinyinCaseType.UPPERCASE, null);
+    private static final HanyuPinyinOutputFormat LOWER_FORMAT = format(HanyuPinyinCaseType.LOWERCASE, null);
+    private static final HanyuPinyinOutputFormat LOWER_V_FORMAT = format(HanyuPinyinCaseType.LOWERCASE, HanyuPinyinVCharType.WITH_V);
+
+    /**
+     * 每种格式一个缓存，下标为 字符 - CJK_START；String 不可变，并发下最多重复查一次字典
+     */
+    private static final String[] UPPER_CACHE = new String[CJK_END - CJK_START + 1];
+    private static final String[] LOWER_CACHE = new String[CJK_END - CJK_START + 1];
+    private static final String[] LOWER_V_CACHE = new String[CJK_END - CJK_START + 1];
+
+    private static final UtilsMetrics.Counter CONVERSIONS =
+            UtilsMetrics.counter("utils.pinyin.conversions", "汉字转拼音的调用次数");
+    private static final UtilsMetrics.Counter CACHE_HITS =
+            UtilsMetrics.counter("utils.pinyin.cache", "单字读音缓存", "result", "hit");
+    private static final UtilsMetrics.Counter CACHE_MISSES =
+            UtilsMetrics.counter("utils.pinyin.cache", "单字读音缓存", "result", "miss");
+
     /**
      * 获得汉语拼音首字母 大写
      * 
@@ -18,13 +45,11 @@ public class Pinyin4jUtil {
     public static String getAlpha2UpperCase(String chines) {
         String pinyinName = "";
         char[] nameChar = chines.toCharArray();
-        HanyuPinyinOutputFormat defaultFormat = new HanyuPinyinOutputFormat();
-        defaultFormat.setCaseType(HanyuPinyinCaseType.UPPERCASE);
-        defaultFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        CacheStats stats = new CacheStats();
         for (int i = 0; i < nameChar.length; i++) {
             if (nameChar[i] > 128) {
                 try {
-                    pinyinName += PinyinHelper.toHanyuPinyinStringArray(nameChar[i], defaultFormat)[0].charAt(0);
+                    pinyinName += firstLetter(nameChar[i], UPPER_FORMAT, UPPER_CACHE, stats);
                 } catch (BadHanyuPinyinOutputFormatCombination e) {
                     System.out.println("获得汉语拼音首字母异常:}" + e.getMessage());
                 }
@@ -32,6 +57,7 @@ public class Pinyin4jUtil {
                 pinyinName += nameChar[i];
             }
         }
+        stats.flush();
         return pinyinName;
     }
 
@@ -42,18 +68,15 @@ public class Pinyin4jUtil {
      * @return
      */
     public static String getPingYin(String inputString) {
-        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
-        format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
-        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
-        format.setVCharType(HanyuPinyinVCharType.WITH_V);
         String output = "";
         if (null != inputString && 0 < inputString.length() && !"null".equals(inputString)) {
             char[] input = inputString.trim().toCharArray();
+            CacheStats stats = new CacheStats();
             try {
                 for (int i = 0; i < input.length; i++) {
-                    if (Character.toString(input[i]).matches("[\\u4E00-\\u9FA5]+")) {
-                        String[] temp = PinyinHelper.toHanyuPinyinStringArray(input[i], format);
-                        output += temp[0];
+                    if (isCjk(input[i])) {
+                        String pinyin = firstPinyin(input[i], LOWER_V_FORMAT, LOWER_V_CACHE, stats);
+                        output += pinyin == null ? Character.toString(input[i]) : pinyin;
                     } else {
                         output += Character.toString(input[i]);
                     }
@@ -61,6 +84,7 @@ public class Pinyin4jUtil {
             } catch (BadHanyuPinyinOutputFormatCombination e) {
                 System.out.println("将字符串中的中文转化为拼音,英文字符不变异常 :" + e.getMessage());
             }
+            stats.flush();
         } else {
             return "";
         }
@@ -76,13 +100,11 @@ public class Pinyin4jUtil {
     public static String converterToFirstSpell(String chines) {
         String pinyinName = "";
         char[] nameChar = chines.toCharArray();
-        HanyuPinyinOutputFormat defaultFormat = new HanyuPinyinOutputFormat();
-        defaultFormat.setCaseType(HanyuPinyinCaseType.UPPERCASE);
-        defaultFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        CacheStats stats = new CacheStats();
         for (int i = 0; i < nameChar.length; i++) {
             if (nameChar[i] > 128) {
                 try {
-                    pinyinName += PinyinHelper.toHanyuPinyinStringArray(nameChar[i], defaultFormat)[0].charAt(0);
+                    pinyinName += firstLetter(nameChar[i], UPPER_FORMAT, UPPER_CACHE, stats);
                 } catch (BadHanyuPinyinOutputFormatCombination e) {
                     System.out.println("汉字转换位汉语拼音首字母，英文字符不变异常 :" + e.getMessage());
                 }
@@ -90,6 +112,7 @@ public class Pinyin4jUtil {
                 pinyinName += nameChar[i];
             }
         }
+        stats.flush();
         return pinyinName;
     }
 
@@ -102,14 +125,12 @@ public class Pinyin4jUtil {
     public static String converterToFirstSpellSmal(String chines) {
         String pinyinName = "";
         char[] nameChar = chines.toCharArray();
-        HanyuPinyinOutputFormat defaultFormat = new HanyuPinyinOutputFormat();
-        defaultFormat.setCaseType(HanyuPinyinCaseType.LOWERCASE);
-        defaultFormat.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        CacheStats stats = new CacheStats();
         for (int i = 0; i < nameChar.length; i++) {
             if (nameChar[i] > 128) {
                 try {
-                    if (Character.toString(nameChar[i]).matches("[\\u4E00-\\u9FA5]+")) {
-                        pinyinName += PinyinHelper.toHanyuPinyinStringArray(nameChar[i], defaultFormat)[0].charAt(0);
+                    if (isCjk(nameChar[i])) {
+                        pinyinName += firstLetter(nameChar[i], LOWER_FORMAT, LOWER_CACHE, stats);
                     } else {
                         pinyinName += nameChar[i];
                     }
@@ -120,6 +141,67 @@ public class Pinyin4jUtil {
                 pinyinName += nameChar[i];
             }
         }
+        stats.flush();
         return pinyinName;
     }
+
+    private static boolean isCjk(char c) {
+        return c >= CJK_START && c <= CJK_END;
+    }
+
+    /**
+     * 首字母；没有读音的字符（全角标点、生僻字等）原样保留
+     */
+    private static char firstLetter(char c, HanyuPinyinOutputFormat format, String[] cache, CacheStats stats)
+            throws BadHanyuPinyinOutputFormatCombination {
+        String pinyin = firstPinyin(c, format, cache, stats);
+        return pinyin == null ? c : pinyin.charAt(0);
+    }
+
+    /**
+     * 第一个读音，常用汉字走缓存，其它字符直接查字典 <br>
+     * 没有读音时返回 null：非汉字 pinyin4j 返回 null，字典里读音为空的字返回空数组
+     */
+    private static String firstPinyin(char c, HanyuPinyinOutputFormat format, String[] cache, CacheStats stats)
+            throws BadHanyuPinyinOutputFormatCombination {
+        boolean cacheable = isCjk(c);
+        if (cacheable) {
+            String cached = cache[c - CJK_START];
+            if (cached != null) {
+                stats.hits++;
+                return cached;
+            }
+            stats.misses++;
+        }
+        String[] pinyin = PinyinHelper.toHanyuPinyinStringArray(c, format);
+        String first = pinyin == null || pinyin.length == 0 ? null : pinyin[0];
+        if (cacheable && first != null) {
+            cache[c - CJK_START] = first;
+        }
+        return first;
+    }
+
+    private static HanyuPinyinOutputFormat format(HanyuPinyinCaseType caseType, HanyuPinyinVCharType vCharType) {
+        HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+        format.setCaseType(caseType);
+        format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        if (vCharType != null) {
+            format.setVCharType(vCharType);
+        }
+        return format;
+    }
+
+    /**
+     * 一次转换内先在局部变量里计数，结束时再累加到指标上
+     */
+    private static class CacheStats {
+        private long hits;
+        private long misses;
+
+        void flush() {
+            CONVERSIONS.increment();
+            CACHE_HITS.increment(hits);
+            CACHE_MISSES.increment(misses);
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.qiusm.utils;
 
+import com.qiusm.utils.metrics.UtilsMetrics;
+
 /**
  * description:
  * 本类主要用于生成主键ID，方法参考twitter的SnowFlake。<br>
@@ -84,6 +86,14 @@ public class SnowflakeUtil {
      */
     private static SnowflakeUtil SNOWFLAKE_UTIL = new SnowflakeUtil();
 
+    private static final UtilsMetrics.Counter IDS =
+            UtilsMetrics.counter("utils.snowflake.ids", "生成的 ID 数");
+    /**
+     * 毫秒内序列用完，需要等到下一毫秒的次数
+     */
+    private static final UtilsMetrics.Counter CLOCK_WAITS =
+            UtilsMetrics.counter("utils.snowflake.clock.waits", "序列溢出等待下一毫秒的次数");
+
     private SnowflakeUtil() {
         // 设置workerId和datacenterId
         // workerId和datacenterId可以通过数据库、配置文件、缓存等方式获取，这里为方便演示默认都设置为0
@@ -127,6 +137,7 @@ public class SnowflakeUtil {
             // 毫秒内序列溢出
             if (sequence == 0) {
                 // 阻塞到下一个毫秒,获得新的时间戳
+                CLOCK_WAITS.increment();
                 timestamp = tilNextMillis(lastTimestamp);
             }
         }
@@ -137,6 +148,7 @@ public class SnowflakeUtil {
 
         // 上次生成ID的时间截
         lastTimestamp = timestamp;
+        IDS.increment();
 
         // 移位并通过或运算拼到一起组成64位的ID
         return ((timestamp - twepoch) << timestampLeftShift)
@@ -145,6 +157,43 @@ public class SnowflakeUtil {
                 | sequence;
     }
 
+    /**
+     * 一次获得 count 个连续的ID，只加一次锁 (该方法是线程安全的) <br>
+     * 每毫秒的序列用完后等到下一毫秒继续，结果与连续调用 count 次 {@link #nextId()} 相同
+     *
+     * @param count 个数
+     * @return 递增的ID
+     */
+    public synchronized long[] nextIds(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count 必须大于 0");
+        }
+        long[] ids = new long[count];
+        long timestamp = timeGen();
+        if (timestamp < lastTimestamp) {
+            throw new RuntimeException(String.format("系统时钟回退%d秒", lastTimestamp - timestamp));
+        }
+        long next = lastTimestamp == timestamp ? sequence + 1 : 0L;
+        int filled = 0;
+        while (filled < count) {
+            if (next > sequenceMask) {
+                CLOCK_WAITS.increment();
+                timestamp = tilNextMillis(timestamp);
+                next = 0L;
+            }
+            long prefix = ((timestamp - twepoch) << timestampLeftShift)
+                    | (datacenterId << datacenterIdShift)
+                    | (workerId << workerIdShift);
+            while (filled < count && next <= sequenceMask) {
+                ids[filled++] = prefix | next++;
+            }
+        }
+        sequence = next - 1;
+        lastTimestamp = timestamp;
+        IDS.increment(count);
+        return ids;
+    }
+
     /**
      * 阻塞到下一个毫秒，直到获得新的时间戳
      *
@@ -1,15 +1,12 @@
 package com.qiusm.utils;
 
-import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import com.qiusm.utils.metrics.UtilsMetrics;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackageAccess;
-import org.apache.poi.ss.usermodel.BuiltinFormats;
-import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.model.StylesTable;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,20 +19,32 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.text.SimpleDateFormat;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
 
 
 /**
  * Excel 大数据量倒入 <br>
  * 1. 中间有空行会继续读取数据 <br>
  * 2. 一行中有单元格空着了，会对应的index会没有，数组长度会少。索引增加，长度不变。 <br>
+ * 3. 数据量很大时使用带 Consumer 的 readerExcel，逐行回调，不在堆上保留整个 List <br>
+ * 4. 按输入流读取时先落到临时文件再按路径打开，避免 POI 把整个压缩包和解压后的 part 读进堆 <br>
+ * 5. readerExcelDirect 直接按 ZIP 条目解压 sheet，不构建 OPC 模型，只支持逐行回调 <br>
+ * 6. 带 skipToRow 的重载用于断点续读：行号（row 标签的 r 属性）不大于 skipToRow 的行只做 SAX 扫描，
+ * 不查共享字符串、不做格式化，回调时带上 Excel 行号 <br>
  *
  * @author qiushengming
  * @date 2018/7/3
@@ -43,6 +52,7 @@ import java.util.List;
 public class XlsxCovertCsvReader {
 
     private static final String INLINE_STR = "inlineStr";
+    private static final String IS = "is";
     private static final String V = "v";
     private static final String C = "c";
     private static final String B = "b";
@@ -94,14 +104,14 @@ public class XlsxCovertCsvReader {
             extends DefaultHandler {
 
         /**
-         * Table with styles
+         * 样式下标 -> 数字格式
          */
-        private StylesTable stylesTable;
+        private final CellFormats cellFormats;
 
         /**
          * Table with unique strings
          */
-        private ReadOnlySharedStringsTable sharedStringsTable;
+        private IntFunction<String> sharedStringsTable;
 
         /**
          * Destination for data
@@ -125,19 +135,9 @@ public class XlsxCovertCsvReader {
         private xssfDataType nextDataType;
 
         /**
-         * 用于格式化数字单元格值
+         * 当前单元格的数值格式化，按样式预先编译好
          */
-        private short formatIndex;
-
-        /**
-         * 用于格式化文本描述
-         */
-        private String formatString;
-
-        /**
-         * 数据格式
-         */
-        private final DataFormatter formatter;
+        private CellFormats.ValueFormatter numberFormatter;
 
         /**
          * 当前列
@@ -160,9 +160,29 @@ public class XlsxCovertCsvReader {
         private String[] record;
 
         /**
-         * 结果集
+         * 每读完一行回调一次，第二个参数是 Excel 行号
+         */
+        private final ObjIntConsumer<String[]> rowConsumer;
+
+        /**
+         * 已输出的行数
+         */
+        private int rowCount;
+
+        /**
+         * 行号不大于它的行直接跳过
          */
-        private List<String[]> rows = new ArrayList<>();
+        private final int skipToRow;
+
+        /**
+         * 当前行号，从 1 开始
+         */
+        private int rowNumber;
+
+        /**
+         * 当前行在跳过范围内
+         */
+        private boolean skipping;
 
 
         /**
@@ -172,17 +192,21 @@ public class XlsxCovertCsvReader {
          * @param strings 字符
          * @param cols    最小列数
          * @param target  输出流
+         * @param skipToRow 跳过的最后一行行号，0 表示不跳过
+         * @param rowConsumer 行回调
          * @author qiushengming
          */
-        MyXssfSheetHandler(StylesTable styles,
-                           ReadOnlySharedStringsTable strings, int cols, PrintStream target) {
-            this.stylesTable = styles;
+        MyXssfSheetHandler(CellFormats styles,
+                           IntFunction<String> strings, int cols, PrintStream target,
+                           int skipToRow, ObjIntConsumer<String[]> rowConsumer) {
+            this.cellFormats = styles;
+            this.skipToRow = skipToRow;
+            this.rowConsumer = rowConsumer;
             this.sharedStringsTable = strings;
             this.minColumnCount = cols;
             this.output = target;
             this.value = new StringBuffer();
             this.nextDataType = xssfDataType.NUMBER;
-            this.formatter = new DataFormatter();
             record = new String[this.minColumnCount];
         }
 
@@ -196,7 +220,18 @@ public class XlsxCovertCsvReader {
         public void startElement(String uri, String localName, String name,
                                  Attributes attributes) throws SAXException {
 
-            if (INLINE_STR.equals(name) || V.equals(name)) {
+            if (ROW.equals(name)) {
+                /* r 属性可以省略，省略时按上一行加一 */
+                String r = attributes.getValue("r");
+                rowNumber = r != null ? Integer.parseInt(r) : rowNumber + 1;
+                skipping = rowNumber <= skipToRow;
+                return;
+            }
+            if (skipping) {
+                return;
+            }
+            /* 内联字符串的值在 is 标签里：<c t="inlineStr"><is><t>...</t></is></c> */
+            if (IS.equals(name) || V.equals(name)) {
                 vIsOpen = true;
                 /* 清除缓存 */
                 value.setLength(0);
@@ -217,8 +252,7 @@ public class XlsxCovertCsvReader {
 
                 /* 设置默认值 */
                 this.nextDataType = xssfDataType.NUMBER;
-                this.formatIndex = -1;
-                this.formatString = null;
+                this.numberFormatter = CellFormats.RAW;
                 /* 获取标签中t属性的值 */
                 String cellType = attributes.getValue("t");
                 /* 获取标签中s属性的值 */
@@ -236,13 +270,7 @@ public class XlsxCovertCsvReader {
                 } else if (cellStyleStr != null) {
                     /* 通过cellStyleStr，可以确定当前单元格的样式，对于此处需求没什么作用 */
                     int styleIndex = Integer.parseInt(cellStyleStr);
-                    XSSFCellStyle style = stylesTable.getStyleAt(styleIndex);
-                    this.formatIndex = style.getDataFormat();
-                    this.formatString = style.getDataFormatString();
-                    if (this.formatString == null) {
-                        this.formatString =
-                                BuiltinFormats.getBuiltinFormat(this.formatIndex);
-                    }
+                    this.numberFormatter = cellFormats.getFormatter(styleIndex);
                 }
             }
 
@@ -253,10 +281,14 @@ public class XlsxCovertCsvReader {
         public void endElement(String uri, String localName, String name)
                 throws SAXException {
 
+            if (skipping) {
+                return;
+            }
             String thisStr = null;
 
             // v => contents of a cell
-            if (V.equals(name)) {
+            if (V.equals(name) || IS.equals(name)) {
+                vIsOpen = false;
                 /* 通过nextDataType区分类型不同类型用不同取值方式 */
                 switch (nextDataType) {
                     case BOOL:
@@ -282,7 +314,7 @@ public class XlsxCovertCsvReader {
                         try {
                             int idx = Integer.parseInt(sstIndex);
                             XSSFRichTextString rtss =
-                                    new XSSFRichTextString(sharedStringsTable.getEntryAt(
+                                    new XSSFRichTextString(sharedStringsTable.apply(
                                             idx));
                             thisStr = rtss.toString();
                         } catch (NumberFormatException ex) {
@@ -292,19 +324,8 @@ public class XlsxCovertCsvReader {
                         }
                         break;
                     case NUMBER:
-                        String n = value.toString();
-                        // 判断是否是日期格式
-                        if (HSSFDateUtil.isADateFormat(this.formatIndex, n)) {
-                            Double d = Double.parseDouble(n);
-                            Date date = HSSFDateUtil.getJavaDate(d);
-                            thisStr = formateDateToString(date);
-                        } else if (this.formatString != null) {
-                            thisStr =
-                                    formatter.formatRawCellContents(Double.parseDouble(
-                                            n), this.formatIndex, this.formatString);
-                        } else {
-                            thisStr = n;
-                        }
+                        // 内置日期格式输出 yyyy-MM-dd HH:mm:ss，其余按样式的数字格式，见 CellFormats
+                        thisStr = numberFormatter.format(value.toString());
                         break;
                     default:
                         thisStr =
@@ -316,6 +337,10 @@ public class XlsxCovertCsvReader {
                     thisStr = thisStr.trim();
                 }
 
+                if (thisColumn >= record.length) {
+                    // 实际列数超过 minColumns 时扩容，之后的行都按扩容后的列数输出
+                    record = Arrays.copyOf(record, thisColumn + 1);
+                }
                 record[thisColumn] = thisStr;
 
                 if (thisColumn > -1) {
@@ -323,14 +348,15 @@ public class XlsxCovertCsvReader {
                 }
 
             } else if (ROW.equals(name)) {
-                /* 当遇到row标签的时候说明该行遇到结尾了，将该行数据增加到list集合中，并清空 */
+                /* 当遇到row标签的时候说明该行遇到结尾了，将该行数据交给回调，并清空 */
                 if (minColumns > 0) {
                     if (lastColumnNumber == -1) {
                         lastColumnNumber = 0;
                     }
                     for (String s : record) {
                         if (s != null) {
-                            rows.add(record.clone());
+                            rowConsumer.accept(record.clone(), rowNumber);
+                            rowCount++;
                             for (int i = 0; i < record.length; i++) {
                                 record[i] = null;
                             }
@@ -344,13 +370,8 @@ public class XlsxCovertCsvReader {
         }
 
 
-        List<String[]> getRows() {
-            return rows;
-        }
-
-
-        public void setRows(List<String[]> rows) {
-            this.rows = rows;
+        int getRowCount() {
+            return rowCount;
         }
 
 
@@ -382,27 +403,23 @@ public class XlsxCovertCsvReader {
             return column;
         }
 
-
-        /**
-         * 2017年4月26日 qiushengming
-         *
-         * @param date 日期对象
-         * @return String 转换为yyyy-MM-dd HH:mm:ss格式
-         * <p>
-         * </p>
-         */
-        private String formateDateToString(Date date) {
-            // 格式化日期
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            return sdf.format(date);
-        }
-
     }
 
 
     private static Logger logger =
             LoggerFactory.getLogger(XlsxCovertCsvReader.class);
 
+    private static final UtilsMetrics.Counter ROWS =
+            UtilsMetrics.counter("utils.xlsx.rows", "读取的行数");
+
+    private static final UtilsMetrics.Timer SHEET_PARSE =
+            UtilsMetrics.timer("utils.xlsx.sheet.parse", "单个 sheet 的解析耗时");
+
+    /**
+     * 输入流落盘时每次 transferFrom 的字节数
+     */
+    private static final long SPOOL_CHUNK = 8L << 20;
+
     private OPCPackage xlsxPackage;
 
     private int minColumns;
@@ -433,13 +450,16 @@ public class XlsxCovertCsvReader {
      * @param styles  样式
      * @param strings strings
      * @param sheetIn sheet页面输入流
-     * @return 一行的结果
+     * @param skipToRow 跳过的最后一行行号
+     * @param rowConsumer 行回调
+     * @return 行数
      * @throws IOException                  IO
      * @throws ParserConfigurationException 解析
      * @throws SAXException                 SAX
      */
-    private List<String[]> processSheet(StylesTable styles,
-                                        ReadOnlySharedStringsTable strings, InputStream sheetIn)
+    private int processSheet(CellFormats styles,
+                             IntFunction<String> strings, InputStream sheetIn,
+                             int skipToRow, ObjIntConsumer<String[]> rowConsumer)
             throws IOException, ParserConfigurationException, SAXException {
 
         InputSource sheetSource = new InputSource(sheetIn);
@@ -449,11 +469,13 @@ public class XlsxCovertCsvReader {
         MyXssfSheetHandler handler = new MyXssfSheetHandler(styles,
                 strings,
                 this.minColumns,
-                this.output);
+                this.output,
+                skipToRow,
+                rowConsumer);
         sheetParser.setContentHandler(handler);
         sheetParser.parse(sheetSource);
 
-        return handler.getRows();
+        return handler.getRowCount();
     }
 
 
@@ -469,14 +491,48 @@ public class XlsxCovertCsvReader {
     public List<String[]> process()
             throws IOException, OpenXML4JException, ParserConfigurationException,
             SAXException {
+        /* 结果存放集合 */
+        List<String[]> list = new ArrayList<>();
+        process(list::add);
+        return list;
+    }
+
+
+    /**
+     * Excel读取器，逐行回调
+     *
+     * @param rowConsumer 行回调，数组是新建的，可以直接保存
+     * @throws IOException                  IO
+     * @throws OpenXML4JException           OPEN
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public void process(Consumer<String[]> rowConsumer)
+            throws IOException, OpenXML4JException, ParserConfigurationException,
+            SAXException {
+        process(0, (row, rowNumber) -> rowConsumer.accept(row));
+    }
+
+
+    /**
+     * Excel读取器，跳过 skipToRow 及之前的行，逐行回调
+     *
+     * @param skipToRow   跳过的最后一行行号（从 1 开始），0 表示不跳过
+     * @param rowConsumer 行回调，第二个参数是 Excel 行号
+     * @throws IOException                  IO
+     * @throws OpenXML4JException           OPEN
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public void process(int skipToRow, ObjIntConsumer<String[]> rowConsumer)
+            throws IOException, OpenXML4JException, ParserConfigurationException,
+            SAXException {
 
         ReadOnlySharedStringsTable strings =
                 new ReadOnlySharedStringsTable(this.xlsxPackage);
         XSSFReader xssfReader = new XSSFReader(this.xlsxPackage);
 
-        /* 结果存放集合 */
-        List<String[]> list = new ArrayList<>();
-        StylesTable styles = xssfReader.getStylesTable();
+        CellFormats styles = CellFormats.of(xssfReader.getStylesTable());
 
         /* sheet页迭代器 */
         XSSFReader.SheetIterator iter =
@@ -490,13 +546,21 @@ public class XlsxCovertCsvReader {
             String sheetNameTemp = iter.getSheetName();
 
             if (sheetNameTemp.equals(sheetName)) {
-                /* 存储读取结果 */
-                list.addAll(processSheet(styles, strings, stream));
+                long start = System.nanoTime();
+                int rows;
+                try {
+                    rows = processSheet(styles, strings::getEntryAt, stream, skipToRow, rowConsumer);
+                } finally {
+                    stream.close();
+                }
+                SHEET_PARSE.recordSince(start);
+                ROWS.increment(rows);
+                /* sheet 名称不会重复；POI 3.16 的 SheetIterator 会把同一个 sheet 返回两次，读完即停 */
+                break;
             }
             /* 关闭流 */
             stream.close();
         }
-        return list;
     }
 
 
@@ -541,14 +605,205 @@ public class XlsxCovertCsvReader {
                                              String sheetName)
             throws IOException, OpenXML4JException, ParserConfigurationException,
             SAXException {
-        OPCPackage p = OPCPackage.open(ipn);
-        XlsxCovertCsvReader xlsx2csv =
-                new XlsxCovertCsvReader(p, System.out, minColumns, sheetName);
-        List<String[]> result = xlsx2csv.process();
-        p.close();
+        List<String[]> result = new ArrayList<>();
+        readerExcel(ipn, minColumns, sheetName, result::add);
         return result;
     }
 
+    /**
+     * 通过路径的形式读取Excel，逐行回调，不在内存中保留所有行
+     *
+     * @param path        文件路径
+     * @param minColumns  最小列数
+     * @param sheetName   sheet页名称
+     * @param rowConsumer 行回调
+     * @throws IOException                  IO异常
+     * @throws OpenXML4JException           openXML4J异常
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public static void readerExcel(String path, int minColumns, String sheetName,
+                                   Consumer<String[]> rowConsumer)
+            throws IOException, OpenXML4JException, ParserConfigurationException,
+            SAXException {
+        readerExcel(path, minColumns, sheetName, 0, (row, rowNumber) -> rowConsumer.accept(row));
+    }
+
+
+    /**
+     * 通过路径的形式读取Excel，从 skipToRow 的下一行开始回调，用于断点续读
+     *
+     * @param path        文件路径
+     * @param minColumns  最小列数
+     * @param sheetName   sheet页名称
+     * @param skipToRow   跳过的最后一行行号（从 1 开始），0 表示不跳过
+     * @param rowConsumer 行回调，第二个参数是 Excel 行号
+     * @throws IOException                  IO异常
+     * @throws OpenXML4JException           openXML4J异常
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public static void readerExcel(String path, int minColumns, String sheetName,
+                                   int skipToRow, ObjIntConsumer<String[]> rowConsumer)
+            throws IOException, OpenXML4JException, ParserConfigurationException,
+            SAXException {
+        OPCPackage p = OPCPackage.open(path, PackageAccess.READ);
+        try {
+            new XlsxCovertCsvReader(p, System.out, minColumns, sheetName).process(skipToRow, rowConsumer);
+        } finally {
+            p.close();
+        }
+    }
+
+
+    /**
+     * 通过流的形式读取Excel，逐行回调 <br>
+     * 先把流写入临时文件，再以只读方式按路径打开，读完删除；不会关闭传入的流
+     *
+     * @param ipn         输入流
+     * @param minColumns  最小列数
+     * @param sheetName   sheet页名称
+     * @param rowConsumer 行回调
+     * @throws IOException                  io
+     * @throws OpenXML4JException           openXML4J
+     * @throws ParserConfigurationException 解析
+     * @throws SAXException                 sax
+     */
+    public static void readerExcel(InputStream ipn, int minColumns, String sheetName,
+                                   Consumer<String[]> rowConsumer)
+            throws IOException, OpenXML4JException, ParserConfigurationException,
+            SAXException {
+        File tmp = spool(ipn);
+        try {
+            readerExcel(tmp.getPath(), minColumns, sheetName, rowConsumer);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+
+    /**
+     * 直接按 ZIP 条目读取 sheet，逐行回调 <br>
+     * 跳过 OPCPackage，sheet 的 XML 边解压边解析；sheet 不存在时不回调
+     *
+     * @param path        文件路径
+     * @param minColumns  最小列数
+     * @param sheetName   sheet页名称
+     * @param rowConsumer 行回调
+     * @throws IOException                  IO异常
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public static void readerExcelDirect(String path, int minColumns, String sheetName,
+                                         Consumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        readerExcelDirect(path, minColumns, sheetName, 0, (row, rowNumber) -> rowConsumer.accept(row));
+    }
+
+
+    /**
+     * 直接按 ZIP 条目读取 sheet，从 skipToRow 的下一行开始回调，用于断点续读
+     *
+     * @param path        文件路径
+     * @param minColumns  最小列数
+     * @param sheetName   sheet页名称
+     * @param skipToRow   跳过的最后一行行号（从 1 开始），0 表示不跳过
+     * @param rowConsumer 行回调，第二个参数是 Excel 行号
+     * @throws IOException                  IO异常
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public static void readerExcelDirect(String path, int minColumns, String sheetName,
+                                         int skipToRow, ObjIntConsumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        try (XlsxZipPackage zip = new XlsxZipPackage(new File(path))) {
+            new XlsxCovertCsvReader(null, System.out, minColumns, sheetName)
+                    .processDirect(zip, skipToRow, rowConsumer);
+        }
+    }
+
+
+    /**
+     * 只读 workbook.xml，取全部 sheet 名称，用于在导入前校验 sheetName
+     *
+     * @param path 文件路径
+     * @return 按工作簿中的顺序
+     * @throws IOException                  IO异常
+     * @throws ParserConfigurationException 解析异常
+     * @throws SAXException                 SAX
+     */
+    public static List<String> getSheetNames(String path)
+            throws IOException, ParserConfigurationException, SAXException {
+        try (XlsxZipPackage zip = new XlsxZipPackage(new File(path))) {
+            return zip.getSheetNames();
+        }
+    }
+
+
+    /**
+     * 通过流的形式直接按 ZIP 条目读取，先落到临时文件
+     *
+     * @param ipn         输入流
+     * @param minColumns  最小列数
+     * @param sheetName   sheet页名称
+     * @param rowConsumer 行回调
+     * @throws IOException                  io
+     * @throws ParserConfigurationException 解析
+     * @throws SAXException                 sax
+     */
+    public static void readerExcelDirect(InputStream ipn, int minColumns, String sheetName,
+                                         Consumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        File tmp = spool(ipn);
+        try {
+            readerExcelDirect(tmp.getPath(), minColumns, sheetName, rowConsumer);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+
+    private void processDirect(XlsxZipPackage zip, int skipToRow, ObjIntConsumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        InputStream stream = zip.openSheet(sheetName);
+        if (stream == null) {
+            return;
+        }
+        try {
+            List<String> strings = zip.getSharedStrings();
+            long start = System.nanoTime();
+            int rows = processSheet(zip.getCellFormats(), strings::get, stream, skipToRow, rowConsumer);
+            SHEET_PARSE.recordSince(start);
+            ROWS.increment(rows);
+        } finally {
+            stream.close();
+        }
+    }
+
+
+    /**
+     * 用 {@link FileChannel#transferFrom} 把输入流写入临时文件
+     *
+     * @param ipn 输入流，不关闭
+     * @return 临时文件，由调用方删除
+     * @throws IOException io
+     */
+    private static File spool(InputStream ipn) throws IOException {
+        File tmp = File.createTempFile("xlsx-upload-", ".xlsx");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+            ReadableByteChannel in = Channels.newChannel(ipn);
+            long position = 0;
+            long n;
+            while ((n = out.transferFrom(in, position, SPOOL_CHUNK)) > 0) {
+                position += n;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        return tmp;
+    }
+
     public static void main(String[] args) throws Exception {
         String path = "D:\\test.xlsx";
         int minColumns = 8;
@@ -0,0 +1,209 @@
+package com.qiusm.utils;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 直接按 ZIP 条目读取 xlsx，不构建 OPC 的 part 模型 <br>
+ * 1. 按 _rels/.rels -> workbook.xml -> workbook.xml.rels 找到 sheet、sharedStrings、styles 的条目 <br>
+ * 2. sheet 的 XML 由 {@link ZipFile#getInputStream(ZipEntry)} 边读边解压，不会整体读入内存 <br>
+ * 3. 共享字符串仍然需要全部加载，和 ReadOnlySharedStringsTable 一样 <br>
+ *
+ * @author qiushengming
+ */
+final class XlsxZipPackage implements Closeable {
+
+    private static final String REL_NS =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private final ZipFile zip;
+
+    /**
+     * sheet 名称 -> 条目名，保持 workbook 中的顺序
+     */
+    private final Map<String, String> sheets = new LinkedHashMap<>();
+
+    private String stylesEntry;
+
+    private String sharedStringsEntry;
+
+    XlsxZipPackage(File file) throws IOException, SAXException, ParserConfigurationException {
+        this.zip = new ZipFile(file);
+        try {
+            String workbook = null;
+            for (String[] rel : relationships("_rels/.rels", "")) {
+                if (rel[1].endsWith("/officeDocument")) {
+                    workbook = rel[2];
+                }
+            }
+            if (workbook == null) {
+                throw new IOException("不是 xlsx 文件，缺少 officeDocument：" + file);
+            }
+            int slash = workbook.lastIndexOf('/');
+            String base = workbook.substring(0, slash + 1);
+            Map<String, String> targets = new HashMap<>();
+            for (String[] rel : relationships(base + "_rels/" + workbook.substring(slash + 1) + ".rels", base)) {
+                targets.put(rel[0], rel[2]);
+                if (rel[1].endsWith("/styles")) {
+                    stylesEntry = rel[2];
+                } else if (rel[1].endsWith("/sharedStrings")) {
+                    sharedStringsEntry = rel[2];
+                }
+            }
+            parse(workbook, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("sheet".equals(localName)) {
+                        String id = attributes.getValue(REL_NS, "id");
+                        if (id == null) {
+                            // Strict OOXML 的命名空间不同，按本地名找
+                            for (int i = 0; i < attributes.getLength(); i++) {
+                                if ("id".equals(attributes.getLocalName(i))) {
+                                    id = attributes.getValue(i);
+                                }
+                            }
+                        }
+                        sheets.put(attributes.getValue("name"), targets.get(id));
+                    }
+                }
+            });
+        } catch (IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    List<String> getSheetNames() {
+        return new ArrayList<>(sheets.keySet());
+    }
+
+    /**
+     * @return sheet 的 XML 输入流，没有该 sheet 时返回 null
+     */
+    InputStream openSheet(String sheetName) throws IOException {
+        String entry = sheets.get(sheetName);
+        return entry == null ? null : open(entry);
+    }
+
+    CellFormats getCellFormats() throws IOException, SAXException, ParserConfigurationException {
+        if (stylesEntry == null) {
+            return CellFormats.EMPTY;
+        }
+        CellFormats.StylesHandler handler = new CellFormats.StylesHandler();
+        parse(stylesEntry, handler);
+        return handler.build();
+    }
+
+    List<String> getSharedStrings() throws IOException, SAXException, ParserConfigurationException {
+        if (sharedStringsEntry == null) {
+            return Collections.emptyList();
+        }
+        SharedStringsHandler handler = new SharedStringsHandler();
+        parse(sharedStringsEntry, handler);
+        return handler.strings;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    /**
+     * @return {Id, Type, 条目名}
+     */
+    private List<String[]> relationships(String entry, String base)
+            throws IOException, SAXException, ParserConfigurationException {
+        List<String[]> result = new ArrayList<>();
+        if (zip.getEntry(entry) == null) {
+            return result;
+        }
+        parse(entry, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("Relationship".equals(localName) && !"External".equals(attributes.getValue("TargetMode"))) {
+                    String target = attributes.getValue("Target");
+                    target = target.startsWith("/") ? target.substring(1) : base + target;
+                    result.add(new String[]{attributes.getValue("Id"), attributes.getValue("Type"), target});
+                }
+            }
+        });
+        return result;
+    }
+
+    private InputStream open(String entryName) throws IOException {
+        ZipEntry entry = zip.getEntry(entryName);
+        if (entry == null) {
+            throw new IOException("缺少条目：" + entryName);
+        }
+        return zip.getInputStream(entry);
+    }
+
+    private void parse(String entryName, DefaultHandler handler)
+            throws IOException, SAXException, ParserConfigurationException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        try (InputStream in = open(entryName)) {
+            factory.newSAXParser().parse(in, handler);
+        }
+    }
+
+    /**
+     * 与 ReadOnlySharedStringsTable 相同：拼接 si 下所有 t 的文本，跳过拼音 rPh
+     */
+    private static final class SharedStringsHandler extends DefaultHandler {
+
+        private final List<String> strings = new ArrayList<>();
+
+        private final StringBuilder text = new StringBuilder();
+
+        private boolean inText;
+
+        private boolean inPhonetic;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("si".equals(localName)) {
+                text.setLength(0);
+            } else if ("t".equals(localName)) {
+                inText = true;
+            } else if ("rPh".equals(localName)) {
+                inPhonetic = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("si".equals(localName)) {
+                strings.add(text.toString());
+            } else if ("t".equals(localName)) {
+                inText = false;
+            } else if ("rPh".equals(localName)) {
+                inPhonetic = false;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText && !inPhonetic) {
+                text.append(ch, start, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.qiusm.utils.collection;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+
+/**
+ * 线程安全的 {@link LongHashSet}，分段方式与 {@link ConcurrentLongObjectMap} 相同 <br>
+ * 适合做已处理 ID 的去重集合
+ *
+ * @author qiushengming
+ */
+public class ConcurrentLongHashSet {
+
+    private final LongHashSet[] segments;
+
+    private final StampedLock[] locks;
+
+    private final int segmentShift;
+
+    public ConcurrentLongHashSet() {
+        this(16, 16);
+    }
+
+    public ConcurrentLongHashSet(int expectedSize, int concurrencyLevel) {
+        this(expectedSize, concurrencyLevel, LongObjectMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize     预期元素总数
+     * @param concurrencyLevel 段数，向上取 2 的幂
+     * @param loadFactor       每段的装载因子
+     */
+    public ConcurrentLongHashSet(int expectedSize, int concurrencyLevel, float loadFactor) {
+        int segmentCount = ConcurrentLongObjectMap.stripes(concurrencyLevel);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new LongHashSet[segmentCount];
+        this.locks = new StampedLock[segmentCount];
+        int perSegment = (expectedSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new LongHashSet(perSegment, loadFactor);
+            locks[i] = new StampedLock();
+        }
+    }
+
+    private int segmentOf(long key) {
+        return segments.length == 1 ? 0 : LongObjectMap.mix(key) >>> segmentShift;
+    }
+
+    /**
+     * @return 原来不存在时返回 true
+     */
+    public boolean add(long key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.writeLock();
+        try {
+            return segments[s].add(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(long key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.readLock();
+        try {
+            return segments[s].contains(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean remove(long key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.writeLock();
+        try {
+            return segments[s].remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                size += segments[s].size();
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 逐段遍历，consumer 在读锁内执行，不能修改本集合
+     */
+    public void forEach(LongConsumer consumer) {
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                segments[s].forEach(consumer);
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+    }
+}
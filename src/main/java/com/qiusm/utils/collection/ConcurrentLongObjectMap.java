@@ -0,0 +1,187 @@
+package com.qiusm.utils.collection;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * 线程安全的 {@link LongObjectMap}：按 key 分段，每段一个 LongObjectMap 和一把 {@link StampedLock} <br>
+ * 1. 段号取 key 哈希的高位，段内槽位取低位，两者互不相关 <br>
+ * 2. 读取用读锁，多个线程读同一段不互斥；写入只锁一个段 <br>
+ * 3. computeIfAbsent 的 mappingFunction 在写锁内执行，不要在里面做耗时操作或访问同一个 map <br>
+ * 4. size、forEach 逐段加锁，不是整体快照 <br>
+ *
+ * @param <V> value 类型，不支持 null
+ * @author qiushengming
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    private final LongObjectMap<V>[] segments;
+
+    private final StampedLock[] locks;
+
+    private final int segmentShift;
+
+    public ConcurrentLongObjectMap() {
+        this(16, 16);
+    }
+
+    public ConcurrentLongObjectMap(int expectedSize, int concurrencyLevel) {
+        this(expectedSize, concurrencyLevel, LongObjectMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize     预期元素总数
+     * @param concurrencyLevel 段数，向上取 2 的幂，一般取并发写线程数的 2~4 倍
+     * @param loadFactor       每段的装载因子
+     */
+    public ConcurrentLongObjectMap(int expectedSize, int concurrencyLevel, float loadFactor) {
+        int segmentCount = stripes(concurrencyLevel);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        @SuppressWarnings("unchecked")
+        LongObjectMap<V>[] segments = (LongObjectMap<V>[]) new LongObjectMap<?>[segmentCount];
+        this.segments = segments;
+        this.locks = new StampedLock[segmentCount];
+        int perSegment = (expectedSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new LongObjectMap<>(perSegment, loadFactor);
+            locks[i] = new StampedLock();
+        }
+    }
+
+    static int stripes(int concurrencyLevel) {
+        if (concurrencyLevel <= 0 || concurrencyLevel > (1 << 16)) {
+            throw new IllegalArgumentException("concurrencyLevel 必须在 1 ~ 65536 之间：" + concurrencyLevel);
+        }
+        return concurrencyLevel == 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1;
+    }
+
+    /**
+     * 段数为 1 时 segmentShift 为 32，int 移 32 位等于不移，这里单独处理
+     */
+    private int segmentOf(long key) {
+        return segments.length == 1 ? 0 : LongObjectMap.mix(key) >>> segmentShift;
+    }
+
+    public V get(long key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.readLock();
+        try {
+            return segments[s].get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.readLock();
+        try {
+            return segments[s].containsKey(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public V put(long key, V value) {
+        requireValue(value);
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.writeLock();
+        try {
+            return segments[s].put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V putIfAbsent(long key, V value) {
+        requireValue(value);
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.writeLock();
+        try {
+            return segments[s].putIfAbsent(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 先在读锁下查找，已存在时不加写锁
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.writeLock();
+        try {
+            return segments[s].computeIfAbsent(key, mappingFunction);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(long key) {
+        int s = segmentOf(key);
+        StampedLock lock = locks[s];
+        long stamp = lock.writeLock();
+        try {
+            return segments[s].remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                size += segments[s].size();
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 逐段遍历，consumer 在读锁内执行，不能修改本 map
+     */
+    public void forEach(LongObjectMap.EntryConsumer<? super V> consumer) {
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                segments[s].forEach(consumer);
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int s = 0; s < segments.length; s++) {
+            long stamp = locks[s].writeLock();
+            try {
+                segments[s].clear();
+            } finally {
+                locks[s].unlockWrite(stamp);
+            }
+        }
+    }
+
+    private static void requireValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("value 不能为 null");
+        }
+    }
+}
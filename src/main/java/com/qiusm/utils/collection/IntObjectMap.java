@@ -0,0 +1,310 @@
+package com.qiusm.utils.collection;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * int 为 key 的哈希表，结构与 {@link LongObjectMap} 相同，key 不装箱 <br>
+ * 1. 开放寻址 + 线性探测，key、value 各一个数组，没有 Entry 对象 <br>
+ * 2. 0 作为空槽标记，key 为 0 的元素单独存放 <br>
+ * 3. 删除时把后面同一探测链上的元素前移（backward shift），不留墓碑 <br>
+ * 4. 容量为 2 的幂，元素数超过 容量 * loadFactor（默认 0.75）时扩容一倍；按预期大小构造可以避免扩容 <br>
+ *    loadFactor 越小探测链越短、查找越快，但占用更多内存 <br>
+ * 5. 非线程安全 <br>
+ *
+ * @param <V> value 类型
+ * @author qiushengming
+ */
+public class IntObjectMap<V> {
+
+    private final float loadFactor;
+
+    private int[] keys;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int size;
+
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+
+    private Object zeroValue;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize 预期元素数，放入这么多元素前不会扩容
+     */
+    public IntObjectMap(int expectedSize) {
+        this(expectedSize, LongObjectMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize 预期元素数，放入这么多元素前不会扩容
+     * @param loadFactor   装载因子，(0, 1)
+     */
+    public IntObjectMap(int expectedSize, float loadFactor) {
+        this.loadFactor = LongObjectMap.checkLoadFactor(loadFactor);
+        allocate(LongObjectMap.capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * 把 key 打散，低位也能用上高位的信息（连续的 ID 不会挤在一起）
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == 0) {
+            return hasZeroKey ? (V) zeroValue : null;
+        }
+        int slot = mix(key) & mask;
+        int existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value != null || containsKey(key) ? value : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        int slot = mix(key) & mask;
+        int existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return 原来的值，没有时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == 0) {
+            V previous = (V) zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int slot = mix(key) & mask;
+        int existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * 不存在时放入
+     *
+     * @return 已存在的值，不存在时返回 null
+     */
+    public V putIfAbsent(int key, V value) {
+        V existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        V existing = get(key);
+        if (existing == null) {
+            existing = mappingFunction.apply(key);
+            if (existing != null) {
+                put(key, existing);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * 与 {@link java.util.Map#merge} 一致：不存在时放入 value，存在时放入 remapping 的结果，结果为 null 时删除
+     */
+    public V merge(int key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V existing = get(key);
+        V merged = existing == null ? value : remappingFunction.apply(existing, value);
+        if (merged == null) {
+            remove(key);
+        } else {
+            put(key, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * @return 被删除的值，没有时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            V previous = (V) zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return previous;
+        }
+        int slot = mix(key) & mask;
+        int existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                V previous = (V) values[slot];
+                shiftKeys(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 删除 slot 后，把探测链上后面的元素往前挪，保证查找不会在空槽提前结束
+     */
+    private void shiftKeys(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        int key;
+        while ((key = keys[next]) != 0) {
+            int home = mix(key) & mask;
+            // home 不在 (gap, next] 区间内时，说明该元素可以挪到 gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    /**
+     * 放入另一个 map 的所有元素，key 相同时以 other 为准
+     */
+    public void putAll(IntObjectMap<? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0, (V) zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        if (hasZeroKey) {
+            result[n++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+}
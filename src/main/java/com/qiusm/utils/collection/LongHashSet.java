@@ -0,0 +1,189 @@
+package com.qiusm.utils.collection;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * long 的哈希集合，元素不装箱 <br>
+ * 开放寻址 + 线性探测，与 {@link LongObjectMap} 相同（只有 key 数组）：0 单独标记，删除时 backward shift，
+ * 装载因子可调，非线程安全
+ *
+ * @author qiushengming
+ */
+public class LongHashSet {
+
+    private final float loadFactor;
+
+    private long[] keys;
+
+    private int mask;
+
+    private int size;
+
+    private int resizeAt;
+
+    private boolean hasZero;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        this(expectedSize, LongObjectMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize 预期元素数，放入这么多元素前不会扩容
+     * @param loadFactor   装载因子，(0, 1)
+     */
+    public LongHashSet(int expectedSize, float loadFactor) {
+        this.loadFactor = LongObjectMap.checkLoadFactor(loadFactor);
+        allocate(LongObjectMap.capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * @return 原来不存在时返回 true
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int slot = LongObjectMap.mix(key) & mask;
+        long existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        int slot = LongObjectMap.mix(key) & mask;
+        long existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return 存在并删除时返回 true
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int slot = LongObjectMap.mix(key) & mask;
+        long existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) {
+                shiftKeys(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void shiftKeys(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        long key;
+        while ((key = keys[next]) != 0) {
+            int home = LongObjectMap.mix(key) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = key;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+    }
+
+    public void forEach(LongConsumer consumer) {
+        if (hasZero) {
+            consumer.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int n = 0;
+        if (hasZero) {
+            result[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        allocate(newCapacity);
+        for (long key : oldKeys) {
+            if (key != 0) {
+                int slot = LongObjectMap.mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,27 @@
+package com.qiusm.utils.excel;
+
+import java.io.IOException;
+
+/**
+ * 断点的持久化，默认实现是 {@link FileCheckpointStore}，需要存数据库时实现这个接口
+ *
+ * @author qiushengming
+ */
+public interface CheckpointStore {
+
+    /**
+     * @param importId 导入任务 ID
+     * @return 没有断点时返回 null
+     */
+    ImportCheckpoint load(String importId) throws IOException;
+
+    /**
+     * 保存断点，返回前必须已经持久化
+     */
+    void save(String importId, ImportCheckpoint checkpoint) throws IOException;
+
+    /**
+     * 导入完成后删除断点
+     */
+    void clear(String importId) throws IOException;
+}
@@ -0,0 +1,160 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.metrics.UtilsMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * 可断点续传的 Excel 导入 <br>
+ * 1. 逐行读 sheet 交给 {@link ImportSink}，每 checkpointInterval 行 commit 一次，commit 成功后保存断点 <br>
+ * 2. 同一个 importId 再次运行时读取断点，sheet 名称一致则从断点的下一行继续；
+ * 之前的行只做 SAX 扫描，不查共享字符串、不做格式化 <br>
+ * 3. 断点记录文件指纹（大小 + CRC32，每次运行多读一遍文件），与本次文件不一致时拒绝续传，
+ * 抛 {@link IllegalStateException}，断点保留；确认要重新导入时先清掉断点或换一个 importId <br>
+ * 4. 全部完成后最后 commit 一次并删除断点；中途失败断点保留，修复后用同一个 importId 重跑 <br>
+ * <pre>
+ * CheckpointedExcelImport excelImport = new CheckpointedExcelImport(new FileCheckpointStore(dir), 10000);
+ * excelImport.run("order-20180703", path, 20, "Sheet1", sink);
+ * </pre>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+public class CheckpointedExcelImport {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+    private static final UtilsMetrics.Counter CHECKPOINTS =
+            UtilsMetrics.counter("utils.xlsx.import.checkpoints", "保存的导入断点数");
+
+    private static final UtilsMetrics.Counter RESUMES =
+            UtilsMetrics.counter("utils.xlsx.import.resumes", "从断点恢复的导入次数");
+
+    private final CheckpointStore store;
+
+    private final int checkpointInterval;
+
+    public CheckpointedExcelImport(CheckpointStore store) {
+        this(store, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param store              断点存储
+     * @param checkpointInterval 每多少行 commit 并保存一次断点
+     */
+    public CheckpointedExcelImport(CheckpointStore store, int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval 必须大于 0");
+        }
+        this.store = store;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @param importId   导入任务 ID，重跑时用同一个
+     * @param path       xlsx 文件路径
+     * @param minColumns 最小列数
+     * @param sheetName  sheet 名称
+     * @param sink       目标端，不关闭，由调用方关闭
+     * @return 本次运行导入的行数，不含断点之前的行
+     * @throws IllegalStateException 断点不是这个文件的
+     */
+    public long run(String importId, String path, int minColumns, String sheetName, ImportSink sink)
+            throws IOException, ParserConfigurationException, SAXException {
+        String fingerprint = fingerprint(new File(path));
+        ImportCheckpoint checkpoint = store.load(importId);
+        if (checkpoint != null && !fingerprint.equals(checkpoint.getFileFingerprint())) {
+            throw new IllegalStateException("导入 " + importId + " 的断点属于另一个文件（" + checkpoint.getFileFingerprint()
+                    + "），本次文件为 " + fingerprint + "，拒绝续传");
+        }
+        if (checkpoint != null && !sheetName.equals(checkpoint.getSheetName())) {
+            log.warn("断点的 sheet {} 与本次 {} 不一致，从头导入 {}", checkpoint.getSheetName(), sheetName, importId);
+            checkpoint = null;
+        }
+        int skipToRow = 0;
+        long offset = 0;
+        if (checkpoint != null) {
+            skipToRow = checkpoint.getRowNumber();
+            offset = checkpoint.getSinkOffset();
+            RESUMES.increment();
+            log.info("导入 {} 从第 {} 行之后继续，sinkOffset={}", importId, skipToRow, offset);
+        }
+        sink.open(offset);
+
+        Progress progress = new Progress(importId, sheetName, fingerprint, skipToRow);
+        try {
+            XlsxCovertCsvReader.readerExcelDirect(path, minColumns, sheetName, skipToRow, (row, rowNumber) -> {
+                try {
+                    sink.accept(rowNumber, row);
+                    progress.accepted(rowNumber, sink);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.commit();
+        store.clear(importId);
+        return progress.rows;
+    }
+
+    /**
+     * @return 文件大小 + "-" + 全文 CRC32
+     */
+    static String fingerprint(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return file.length() + "-" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * 一次运行中的进度
+     */
+    private class Progress {
+
+        private final String importId;
+
+        private final String sheetName;
+
+        private final String fingerprint;
+
+        private int lastRow;
+
+        private long rows;
+
+        private int uncommitted;
+
+        Progress(String importId, String sheetName, String fingerprint, int lastRow) {
+            this.importId = importId;
+            this.sheetName = sheetName;
+            this.fingerprint = fingerprint;
+            this.lastRow = lastRow;
+        }
+
+        void accepted(int rowNumber, ImportSink sink) throws IOException {
+            lastRow = rowNumber;
+            rows++;
+            if (++uncommitted >= checkpointInterval) {
+                long offset = sink.commit();
+                store.save(importId, new ImportCheckpoint(sheetName, fingerprint, lastRow, offset, System.currentTimeMillis()));
+                CHECKPOINTS.increment();
+                uncommitted = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.qiusm.utils.excel;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 异步 Excel 导入接口 <br>
+ * 1. POST /excel/imports 上传 xlsx，落盘后立即返回 202 和任务；队列满时返回 429；
+ * minColumns 只是最少输出的列数，实际更宽的 sheet 按实际列数读取 <br>
+ * 2. GET /excel/imports/{id} 查询单个任务的状态、行数、每秒行数 <br>
+ * 3. GET /excel/imports 查询本节点的并发、排队情况和全部任务 <br>
+ *
+ * @author qiushengming
+ */
+@RestController
+@RequestMapping("/excel/imports")
+public class ExcelImportController {
+
+    private final ExcelImportService service;
+
+    public ExcelImportController(ExcelImportService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    public ResponseEntity<ExcelImportJob> submit(@RequestParam("file") MultipartFile file,
+                                                 @RequestParam(value = "sheetName", defaultValue = "Sheet1") String sheetName,
+                                                 @RequestParam(value = "minColumns", defaultValue = "1") int minColumns)
+            throws IOException {
+        if (file.isEmpty() || minColumns < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        File tmp = File.createTempFile("excel-import", ".xlsx");
+        try {
+            file.transferTo(tmp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        ExcelImportJob job = service.submit(file.getOriginalFilename(), tmp, sheetName, minColumns);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ExcelImportJob> get(@PathVariable("id") String id) {
+        ExcelImportJob job = service.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    @GetMapping
+    public Map<String, Object> status() {
+        List<ExcelImportJob> jobs = service.list();
+        double rowsPerSecond = 0;
+        for (ExcelImportJob job : jobs) {
+            if (job.getState() == ExcelImportJob.State.RUNNING) {
+                rowsPerSecond += job.getRowsPerSecond();
+            }
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("virtualThreads", service.isVirtualThreads());
+        status.put("concurrency", service.getConcurrency());
+        status.put("maxPending", service.getMaxPending());
+        status.put("pending", service.getPending());
+        status.put("running", service.getRunning());
+        status.put("rowsPerSecond", rowsPerSecond);
+        status.put("jobs", jobs);
+        return status;
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> rejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.qiusm.utils.excel;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步导入任务的状态和进度，作为接口的返回值序列化 <br>
+ * 1. rows 由工作线程更新，其余字段在状态切换时写入，都可以在请求线程上直接读 <br>
+ * 2. rowsPerSecond 在运行中按开始至今计算，结束后按开始到结束计算 <br>
+ *
+ * @author qiushengming
+ */
+@Getter
+public class ExcelImportJob {
+
+    public enum State {
+        /**
+         * 已提交，等待空闲的并发名额
+         */
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String id;
+
+    private final String fileName;
+
+    private final String sheetName;
+
+    private final long fileSize;
+
+    private final long submitTime;
+
+    private volatile State state = State.QUEUED;
+
+    private volatile long startTime;
+
+    private volatile long endTime;
+
+    private volatile String error;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong rows = new AtomicLong();
+
+    ExcelImportJob(String id, String fileName, String sheetName, long fileSize) {
+        this.id = id;
+        this.fileName = fileName;
+        this.sheetName = sheetName;
+        this.fileSize = fileSize;
+        this.submitTime = System.currentTimeMillis();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * @return 每秒处理的行数，还没开始时为 0
+     */
+    public double getRowsPerSecond() {
+        long start = startTime;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endTime == 0 ? System.currentTimeMillis() : endTime;
+        return rows.get() * 1000.0 / Math.max(1, end - start);
+    }
+
+    public boolean isFinished() {
+        return state == State.SUCCEEDED || state == State.FAILED;
+    }
+
+    void started() {
+        startTime = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void rowAccepted() {
+        rows.incrementAndGet();
+    }
+
+    void succeeded() {
+        endTime = System.currentTimeMillis();
+        state = State.SUCCEEDED;
+    }
+
+    void failed(Throwable e) {
+        endTime = System.currentTimeMillis();
+        error = e.toString();
+        state = State.FAILED;
+    }
+}
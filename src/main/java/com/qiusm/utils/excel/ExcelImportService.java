@@ -0,0 +1,313 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.SnowflakeUtil;
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.metrics.UtilsMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步 Excel 导入 <br>
+ * 1. 上传的文件先落到临时文件，提交后立即返回任务，请求线程不等待解析 <br>
+ * 2. 排队和运行中的任务总数不超过 maxPending，超出时抛 {@link RejectedExecutionException} <br>
+ * 3. 同时解析的任务数不超过 concurrency，由公平信号量按提交顺序放行；
+ * 新 JDK 上每个任务一个虚拟线程，等待名额几乎没有开销，旧 JDK 退回固定大小的平台线程池 <br>
+ * 4. 解析用 {@link XlsxCovertCsvReader#readerExcelDirect}，逐行交给 {@link ImportSinkFactory} 创建的目标端，
+ * 每 {@link CheckpointedExcelImport#DEFAULT_CHECKPOINT_INTERVAL} 行 commit 一次 <br>
+ * 5. 结束的任务保留最近 retainedJobs 个，供状态接口查询 <br>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+@Service
+public class ExcelImportService implements DisposableBean {
+
+    private static final UtilsMetrics.Counter SUBMITTED =
+            UtilsMetrics.counter("utils.xlsx.async.submitted", "提交的异步导入任务数");
+
+    private static final UtilsMetrics.Counter REJECTED =
+            UtilsMetrics.counter("utils.xlsx.async.rejected", "队列已满被拒绝的异步导入任务数");
+
+    private static final UtilsMetrics.Counter FAILED =
+            UtilsMetrics.counter("utils.xlsx.async.failed", "失败的异步导入任务数");
+
+    private static final UtilsMetrics.Timer DURATION =
+            UtilsMetrics.timer("utils.xlsx.async.duration", "异步导入任务从开始到结束的耗时");
+
+    private final ImportSinkFactory sinkFactory;
+
+    private final int concurrency;
+
+    private final int maxPending;
+
+    private final int retainedJobs;
+
+    private final ExecutorService executor;
+
+    private final boolean virtualThreads;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Map<String, ExcelImportJob> jobs = new ConcurrentHashMap<>();
+
+    private final Queue<String> finished = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public ExcelImportService(ObjectProvider<ImportSinkFactory> sinkFactory,
+                              @Value("${qiusm.utils.excel-import.concurrency:0}") int concurrency,
+                              @Value("${qiusm.utils.excel-import.max-pending:64}") int maxPending,
+                              @Value("${qiusm.utils.excel-import.retained-jobs:1000}") int retainedJobs) {
+        this(sinkFactory.getIfAvailable(), concurrency, maxPending, retainedJobs);
+    }
+
+    /**
+     * @param sinkFactory  目标端工厂，为 null 时只解析计数
+     * @param concurrency  同时解析的任务数，小于等于 0 时取 CPU 核数
+     * @param maxPending   排队和运行中的任务上限
+     * @param retainedJobs 保留的已结束任务数
+     */
+    public ExcelImportService(ImportSinkFactory sinkFactory, int concurrency, int maxPending, int retainedJobs) {
+        this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        if (maxPending < this.concurrency) {
+            throw new IllegalArgumentException("maxPending 不能小于 concurrency " + this.concurrency);
+        }
+        this.sinkFactory = sinkFactory;
+        this.maxPending = maxPending;
+        this.retainedJobs = retainedJobs;
+        this.permits = new Semaphore(this.concurrency, true);
+        this.executor = ImportExecutors.create(this.concurrency, "excel-import-");
+        this.virtualThreads = ImportExecutors.isVirtual(executor);
+    }
+
+    /**
+     * 提交导入任务，文件的所有权交给本服务，结束后删除
+     *
+     * @param fileName   原始文件名，只用于展示
+     * @param file       已落盘的 xlsx 临时文件
+     * @param sheetName  sheet 名称
+     * @param minColumns 最小列数
+     * @return 排队中的任务
+     * @throws RejectedExecutionException 排队和运行中的任务已达上限
+     */
+    public ExcelImportJob submit(String fileName, File file, String sheetName, int minColumns) throws IOException {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            REJECTED.increment();
+            Files.deleteIfExists(file.toPath());
+            throw new RejectedExecutionException("导入任务已达上限 " + maxPending);
+        }
+        ExcelImportJob job = new ExcelImportJob(String.valueOf(SnowflakeUtil.getInstance().nextId()),
+                fileName, sheetName, file.length());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(new ImportTask(job, file, minColumns));
+        } catch (RejectedExecutionException e) {
+            // 服务已关闭
+            jobs.remove(job.getId());
+            pending.decrementAndGet();
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+        SUBMITTED.increment();
+        return job;
+    }
+
+    /**
+     * @return 任务，不存在或已被淘汰时返回 null
+     */
+    public ExcelImportJob get(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return 按提交时间排序的全部任务
+     */
+    public List<ExcelImportJob> list() {
+        List<ExcelImportJob> result = new ArrayList<>(jobs.values());
+        result.sort(Comparator.comparingLong(ExcelImportJob::getSubmitTime));
+        return result;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * @return 排队和运行中的任务数
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return 正在解析的任务数
+     */
+    public int getRunning() {
+        return concurrency - permits.availablePermits();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // 平台线程池里还没开始的任务不会再运行，直接按失败结束；运行中和等名额的任务由中断结束
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof ImportTask) {
+                ImportTask importTask = (ImportTask) task;
+                fail(importTask.job, new InterruptedException("服务关闭，导入未开始"));
+                finish(importTask.job, importTask.file);
+            }
+        }
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("仍有导入任务未结束");
+        }
+    }
+
+    private void run(ExcelImportJob job, File file, int minColumns) {
+        try {
+            permits.acquire();
+            try {
+                long start = System.nanoTime();
+                job.started();
+                parse(job, file, minColumns);
+                job.succeeded();
+                DURATION.recordSince(start);
+                log.info("导入 {} 完成：{} 行，{} 行/秒", job.getId(), job.getRows(), (long) job.getRowsPerSecond());
+            } finally {
+                permits.release();
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                // 服务关闭时等待名额的任务被中断
+                Thread.currentThread().interrupt();
+            }
+            fail(job, e);
+        } finally {
+            finish(job, file);
+        }
+    }
+
+    private void fail(ExcelImportJob job, Exception e) {
+        FAILED.increment();
+        job.failed(e);
+        log.warn("导入 {} 失败：{}", job.getId(), job.getFileName(), e);
+    }
+
+    /**
+     * 删除临时文件，释放排队名额
+     */
+    private void finish(ExcelImportJob job, File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("删除临时文件失败：{}", file, e);
+        }
+        retire(job);
+        pending.decrementAndGet();
+    }
+
+    private void parse(ExcelImportJob job, File file, int minColumns) throws Exception {
+        List<String> sheetNames = XlsxCovertCsvReader.getSheetNames(file.getPath());
+        if (!sheetNames.contains(job.getSheetName())) {
+            // 读取器遇到不存在的 sheet 不回调，这里不检查任务会以 0 行成功结束
+            throw new IllegalArgumentException("sheet 不存在：" + job.getSheetName() + "，可选：" + sheetNames);
+        }
+        // 成功失败都关闭目标端；close 出错时不会盖住导入本身的异常
+        try (ImportSink sink = sinkFactory == null ? null : sinkFactory.create(job)) {
+            if (sink != null) {
+                sink.open(0);
+            }
+            int[] uncommitted = new int[1];
+            try {
+                XlsxCovertCsvReader.readerExcelDirect(file.getPath(), minColumns, job.getSheetName(), 0,
+                        (row, rowNumber) -> {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new IllegalStateException("导入被中断");
+                            }
+                            if (sink != null) {
+                                try {
+                                    sink.accept(rowNumber, row);
+                                    if (++uncommitted[0] >= CheckpointedExcelImport.DEFAULT_CHECKPOINT_INTERVAL) {
+                                        sink.commit();
+                                        uncommitted[0] = 0;
+                                    }
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }
+                            job.rowAccepted();
+                        });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (sink != null) {
+                sink.commit();
+            }
+        }
+    }
+
+    /**
+     * 提交到执行器的任务，关闭时从 shutdownNow 的返回值里认出还没开始的导入
+     */
+    private final class ImportTask implements Runnable {
+
+        private final ExcelImportJob job;
+
+        private final File file;
+
+        private final int minColumns;
+
+        ImportTask(ExcelImportJob job, File file, int minColumns) {
+            this.job = job;
+            this.file = file;
+            this.minColumns = minColumns;
+        }
+
+        @Override
+        public void run() {
+            ExcelImportService.this.run(job, file, minColumns);
+        }
+    }
+
+    /**
+     * 已结束的任务超过 retainedJobs 时淘汰最早结束的
+     */
+    private void retire(ExcelImportJob job) {
+        finished.add(job.getId());
+        while (finished.size() > retainedJobs) {
+            String id = finished.poll();
+            if (id != null) {
+                jobs.remove(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.qiusm.utils.excel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * 断点存本地文件，每个导入任务一个 {@code <importId>.checkpoint} <br>
+ * 1. 先写同目录下的临时文件并 force，再原子 rename 覆盖，进程或机器崩溃时读到的要么是旧断点、要么是新断点 <br>
+ * 2. 文件内容是 properties，方便人工查看和修改 <br>
+ *
+ * @author qiushengming
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
+    private static final String SUFFIX = ".checkpoint";
+
+    private final File directory;
+
+    public FileCheckpointStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录：" + directory);
+        }
+        this.directory = directory;
+    }
+
+    @Override
+    public ImportCheckpoint load(String importId) throws IOException {
+        Path file = file(importId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return new ImportCheckpoint(properties.getProperty("sheetName"),
+                properties.getProperty("fileFingerprint"),
+                Integer.parseInt(properties.getProperty("rowNumber")),
+                Long.parseLong(properties.getProperty("sinkOffset")),
+                Long.parseLong(properties.getProperty("updateTime", "0")));
+    }
+
+    @Override
+    public void save(String importId, ImportCheckpoint checkpoint) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("sheetName", checkpoint.getSheetName());
+        properties.setProperty("fileFingerprint", checkpoint.getFileFingerprint());
+        properties.setProperty("rowNumber", String.valueOf(checkpoint.getRowNumber()));
+        properties.setProperty("sinkOffset", String.valueOf(checkpoint.getSinkOffset()));
+        properties.setProperty("updateTime", String.valueOf(checkpoint.getUpdateTime()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        properties.store(bytes, importId);
+
+        Path target = file(importId);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void clear(String importId) throws IOException {
+        Files.deleteIfExists(file(importId));
+    }
+
+    private Path file(String importId) {
+        if (importId == null || !IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("importId 只能包含字母、数字、. _ -：" + importId);
+        }
+        return new File(directory, importId + SUFFIX).toPath();
+    }
+}
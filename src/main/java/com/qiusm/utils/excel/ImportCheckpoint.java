@@ -0,0 +1,35 @@
+package com.qiusm.utils.excel;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 导入断点：哪个文件的哪个 sheet、已提交到第几行、目标端提交到哪个位置
+ *
+ * @author qiushengming
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCheckpoint {
+
+    private String sheetName;
+
+    /**
+     * 文件指纹（大小 + CRC32），文件换了不能接着导
+     */
+    private String fileFingerprint;
+
+    /**
+     * 最后一个已提交行的 Excel 行号，从 1 开始
+     */
+    private int rowNumber;
+
+    /**
+     * 目标端 {@link ImportSink#commit()} 返回的位置，恢复时原样传给 {@link ImportSink#open(long)}
+     */
+    private long sinkOffset;
+
+    private long updateTime;
+}
@@ -0,0 +1,74 @@
+package com.qiusm.utils.excel;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导入任务的执行器 <br>
+ * 1. 运行在 JDK 21 及以上时通过反射创建虚拟线程执行器，每个任务一个虚拟线程 <br>
+ * 2. 否则退回固定大小的平台线程池，线程数等于并发上限 <br>
+ * 3. 项目按 Java 8 编译，不能直接引用 Thread.ofVirtual，所以用反射探测 <br>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+final class ImportExecutors {
+
+    private ImportExecutors() {
+    }
+
+    /**
+     * @param workers 平台线程池的线程数
+     * @param prefix  平台线程名前缀
+     */
+    static ExecutorService create(int workers, String prefix) {
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual != null) {
+            log.info("导入执行器使用虚拟线程");
+            return virtual;
+        }
+        log.info("当前 JDK 不支持虚拟线程，导入执行器使用 {} 个平台线程", workers);
+        return Executors.newFixedThreadPool(workers, new NamedThreadFactory(prefix));
+    }
+
+    static boolean isVirtual(ExecutorService executor) {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // JDK 19、20 上是预览特性，没开 --enable-preview 时会抛 UnsupportedOperationException
+            log.warn("创建虚拟线程执行器失败，使用平台线程：{}", e.toString());
+            return null;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        private final String prefix;
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.qiusm.utils.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 断点续传导入的目标端，例如追加写文件、分批入库 <br>
+ * 1. accept 可以先缓冲，commit 时再持久化 <br>
+ * 2. commit 返回的位置会写进断点；恢复时通过 open 传回来，目标端据此丢掉上次 commit 之后写入的数据 <br>
+ * 3. 成功或失败都会 close，释放文件句柄、连接；失败时未 commit 的数据由目标端自行丢弃 <br>
+ *
+ * @author qiushengming
+ */
+public interface ImportSink extends Closeable {
+
+    /**
+     * 开始导入前调用
+     *
+     * @param offset 首次导入为 0，恢复时为断点里的 sinkOffset
+     */
+    void open(long offset) throws IOException;
+
+    /**
+     * @param rowNumber Excel 行号
+     * @param row       行数据
+     */
+    void accept(int rowNumber, String[] row) throws IOException;
+
+    /**
+     * 持久化已接收的行
+     *
+     * @return 当前位置
+     */
+    long commit() throws IOException;
+}
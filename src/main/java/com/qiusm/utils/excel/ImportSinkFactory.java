@@ -0,0 +1,18 @@
+package com.qiusm.utils.excel;
+
+import java.io.IOException;
+
+/**
+ * 为每个异步导入任务创建目标端 <br>
+ * 容器里没有这个 bean 时 {@link ExcelImportService} 只解析和计数，不落任何数据
+ *
+ * @author qiushengming
+ */
+public interface ImportSinkFactory {
+
+    /**
+     * @param job 导入任务，工作线程上调用
+     * @return 本次导入的目标端，导入结束后由 {@link ExcelImportService} 关闭
+     */
+    ImportSink create(ExcelImportJob job) throws IOException;
+}
@@ -0,0 +1,279 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.collection.LongArrayList;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 堆外行存储，用来替代大文件导入时的 {@code List<String[]>} <br>
+ * 1. 每行编码为：int 列数 + 每列（int 字节数 + UTF-8 内容），字节数 -1 表示 null <br>
+ * 2. 按固定大小分段追加，段来自 {@link ByteBuffer#allocateDirect(int)} 或临时文件的内存映射，单行不能超过一段 <br>
+ * 3. 行号 -> (段号 << 32 | 段内偏移) 存在 {@link LongArrayList} 里，每行只占 8 字节堆内存 <br>
+ * 4. 支持按行号随机读取和顺序遍历，可以反复多遍处理（先全量校验、再入库），每次读取都是新解码的数组 <br>
+ * 5. 只允许一个线程 append；写完之后 get、iterator 可以多线程同时使用 <br>
+ * 6. close 之后 direct 内存和映射在下次 GC 时释放；映射模式的段文件随即删除，
+ * Windows 上映射未释放的文件删不掉，改为 JVM 退出时删除 <br>
+ * <pre>
+ * try (OffHeapRowStore store = OffHeapRowStore.mapped(null, OffHeapRowStore.DEFAULT_SEGMENT_SIZE)) {
+ *     XlsxCovertCsvReader.readerExcel(path, 20, "Sheet1", store::append);
+ *     for (String[] row : store) { validate(row); }
+ *     for (String[] row : store) { insert(row); }
+ * }
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public class OffHeapRowStore implements Closeable, Iterable<String[]> {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int NULL_LENGTH = -1;
+
+    private final int segmentSize;
+
+    /**
+     * 映射模式的段文件目录，direct 模式为 null
+     */
+    private final File directory;
+
+    /**
+     * 目录是自己创建的临时目录，close 时一起删除
+     */
+    private final boolean ownDirectory;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+
+    private final LongArrayList index = new LongArrayList();
+
+    private ByteBuffer current;
+
+    private long bytes;
+
+    private volatile boolean closed;
+
+    private OffHeapRowStore(int segmentSize, File directory, boolean ownDirectory) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize 不能小于 1024");
+        }
+        this.segmentSize = segmentSize;
+        this.directory = directory;
+        this.ownDirectory = ownDirectory;
+    }
+
+    /**
+     * 使用 direct 内存，受 -XX:MaxDirectMemorySize 限制
+     */
+    public static OffHeapRowStore direct(int segmentSize) {
+        return new OffHeapRowStore(segmentSize, null, false);
+    }
+
+    public static OffHeapRowStore direct() {
+        return direct(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * 使用内存映射的临时文件，数据由页缓存承载，可以超过物理内存
+     *
+     * @param directory   段文件目录，为 null 时在 java.io.tmpdir 下新建临时目录
+     * @param segmentSize 每段字节数
+     */
+    public static OffHeapRowStore mapped(File directory, int segmentSize) throws IOException {
+        if (directory == null) {
+            return new OffHeapRowStore(segmentSize,
+                    Files.createTempDirectory("offheap-rows").toFile(), true);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录：" + directory);
+        }
+        return new OffHeapRowStore(segmentSize, directory, false);
+    }
+
+    /**
+     * 追加一行，可以直接作为 {@code XlsxCovertCsvReader.readerExcel} 的行回调
+     *
+     * @param row 行数据，元素可以为 null
+     * @return 行号，从 0 开始
+     */
+    public int append(String[] row) {
+        ensureOpen();
+        byte[][] cells = new byte[row.length][];
+        int length = 4;
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] != null) {
+                cells[i] = row[i].getBytes(StandardCharsets.UTF_8);
+                length += cells[i].length;
+            }
+            length += 4;
+        }
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("单行 " + length + " 字节，超过段大小 " + segmentSize);
+        }
+        if (current == null || current.remaining() < length) {
+            current = newSegment();
+            segments.add(current);
+        }
+        int offset = current.position();
+        current.putInt(row.length);
+        for (byte[] cell : cells) {
+            if (cell == null) {
+                current.putInt(NULL_LENGTH);
+            } else {
+                current.putInt(cell.length);
+                current.put(cell);
+            }
+        }
+        bytes += length;
+        index.add((long) (segments.size() - 1) << 32 | offset);
+        return index.size() - 1;
+    }
+
+    /**
+     * 按行号随机读取
+     */
+    public String[] get(int rowIndex) {
+        ensureOpen();
+        long position = index.get(rowIndex);
+        ByteBuffer buffer = segments.get((int) (position >>> 32)).duplicate();
+        buffer.position((int) position);
+        return decode(buffer);
+    }
+
+    /**
+     * 顺序遍历；同一段内复用一个 duplicate，不查 index
+     */
+    @Override
+    public Iterator<String[]> iterator() {
+        ensureOpen();
+        final int size = index.size();
+        return new Iterator<String[]>() {
+            private int next;
+            private int segment = -1;
+            private ByteBuffer buffer;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String[] next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                ensureOpen();
+                long position = index.get(next++);
+                int s = (int) (position >>> 32);
+                if (s != segment) {
+                    segment = s;
+                    buffer = segments.get(s).duplicate();
+                    buffer.position((int) position);
+                }
+                return decode(buffer);
+            }
+        };
+    }
+
+    /**
+     * @return 行数
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * @return 已写入的编码后字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return 已分配的堆外字节数（段数 * 段大小）
+     */
+    public long getCapacity() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        int count = segments.size();
+        segments.clear();
+        index.clear();
+        current = null;
+        if (directory != null) {
+            for (int i = 0; i < count; i++) {
+                deleteQuietly(segmentFile(i));
+            }
+            if (ownDirectory) {
+                deleteQuietly(directory);
+            }
+        }
+    }
+
+    /**
+     * 映射要等 GC 才会释放，Windows 上文件可能暂时删不掉，退出时再删
+     */
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static String[] decode(ByteBuffer buffer) {
+        String[] row = new String[buffer.getInt()];
+        byte[] scratch = null;
+        for (int i = 0; i < row.length; i++) {
+            int length = buffer.getInt();
+            if (length == NULL_LENGTH) {
+                continue;
+            }
+            if (scratch == null || scratch.length < length) {
+                scratch = new byte[Math.max(length, 64)];
+            }
+            buffer.get(scratch, 0, length);
+            row[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return row;
+    }
+
+    private ByteBuffer newSegment() {
+        if (directory == null) {
+            return ByteBuffer.allocateDirect(segmentSize);
+        }
+        File file = segmentFile(segments.size());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法映射段文件：" + file, e);
+        }
+    }
+
+    private File segmentFile(int segment) {
+        return new File(directory, String.format("rows-%05d.seg", segment));
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("OffHeapRowStore 已关闭");
+        }
+    }
+}
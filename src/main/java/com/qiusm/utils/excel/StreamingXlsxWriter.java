@@ -0,0 +1,497 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.metrics.UtilsMetrics;
+import org.apache.poi.ss.util.WorkbookUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 常量内存的流式 xlsx 写出，和 {@code XlsxCovertCsvReader} 配套 <br>
+ * 1. 不经过 POI 的对象模型，sheet 的 XML 直接写进 {@link ZipOutputStream}，每行写完即丢 <br>
+ * 2. 字符串优先放共享字符串表；表满了（maxSharedStrings）或字符串太长（maxSharedStringLength）时改写内联字符串，
+ * 内存上限由这两个参数决定，与行数无关 <br>
+ * 3. styles.xml 只写一次，固定三个样式：常规、日期时间（yyyy-mm-dd hh:mm:ss）、日期（yyyy-mm-dd） <br>
+ * 4. 单元格类型：Number 写数值，Boolean 写布尔，Date/LocalDateTime/LocalDate 写日期序列号加日期样式，其他按字符串；null 不写；
+ * Excel 数值只有 15 位有效数字，超过的（如雪花 ID）按字符串写，避免末尾几位被改成 0 <br>
+ * 5. 超过 maxRowsPerSheet（默认 Excel 上限 1048576，含表头）自动换下一个 sheet，名称加 (2)、(3) <br>
+ * 6. sheet 名称按 Excel 的规则处理：{@code []:*?/\} 换成空格，加上 (2) 之后也不超过 31 个字符 <br>
+ * 7. 列定义配好之后可以多线程同时 write，每次 write 的状态都是局部的 <br>
+ * <pre>
+ * new StreamingXlsxWriter&lt;Dto&gt;()
+ *         .column("编号", Dto::getIntValue)
+ *         .column("名称", Dto::getStr)
+ *         .column("日期", Dto::getDate)
+ *         .write(out, "Sheet1", dtoList.stream());
+ * </pre>
+ *
+ * @param <T> 行对象类型
+ * @author qiushengming
+ */
+public class StreamingXlsxWriter<T> {
+
+    public static final int MAX_ROWS_PER_SHEET = 1048576;
+
+    public static final int DEFAULT_MAX_SHARED_STRINGS = 1 << 16;
+
+    public static final int DEFAULT_MAX_SHARED_STRING_LENGTH = 256;
+
+    /**
+     * Excel 数值的有效数字位数
+     */
+    private static final int EXCEL_PRECISION = 15;
+
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+    private static final UtilsMetrics.Counter ROWS =
+            UtilsMetrics.counter("utils.xlsx.write.rows", "写出的行数");
+
+    private static final int STYLE_DATE_TIME = 1;
+
+    private static final int STYLE_DATE = 2;
+
+    /**
+     * 1900-03-01 之后，Excel 序列号 = 距 1899-12-30 的天数
+     */
+    private static final long EXCEL_EPOCH_DAY = LocalDate.of(1899, 12, 30).toEpochDay();
+
+    private static final LocalDate FIRST_SERIAL_DATE = LocalDate.of(1900, 3, 1);
+
+    private static final double NANOS_PER_DAY = 86400e9;
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String STYLES = XML_HEADER
+            + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+            + "<numFmts count=\"2\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd hh:mm:ss\"/>"
+            + "<numFmt numFmtId=\"165\" formatCode=\"yyyy-mm-dd\"/></numFmts>"
+            + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+            + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"3\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+            + "<xf numFmtId=\"165\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/></cellXfs>"
+            + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+            + "</styleSheet>";
+
+    private final List<String> headers = new ArrayList<>();
+
+    private final List<Function<? super T, ?>> extractors = new ArrayList<>();
+
+    private int maxSharedStrings = DEFAULT_MAX_SHARED_STRINGS;
+
+    private int maxSharedStringLength = DEFAULT_MAX_SHARED_STRING_LENGTH;
+
+    private int maxRowsPerSheet = MAX_ROWS_PER_SHEET;
+
+    /**
+     * 追加一列
+     *
+     * @param header    表头，为 null 时整个表头行都不写
+     * @param extractor 取值函数
+     * @return this
+     */
+    public StreamingXlsxWriter<T> column(String header, Function<? super T, ?> extractor) {
+        headers.add(header);
+        extractors.add(extractor);
+        return this;
+    }
+
+    /**
+     * 写出到 out，结束时 finish 但不关闭 out
+     *
+     * @param out       输出流
+     * @param sheetName 第一个 sheet 的名称
+     * @param rows      数据
+     * @return 写出的数据行数，不含表头
+     * @throws IOException io
+     */
+    public long write(OutputStream out, String sheetName, Iterator<? extends T> rows) throws IOException {
+        if (extractors.isEmpty()) {
+            throw new IllegalStateException("没有配置列");
+        }
+        Session session = new Session(out);
+        long count = session.write(sheetName, rows);
+        ROWS.increment(count);
+        return count;
+    }
+
+    public long write(OutputStream out, String sheetName, Stream<? extends T> rows) throws IOException {
+        return write(out, sheetName, rows.iterator());
+    }
+
+    /**
+     * @param maxSharedStrings 共享字符串表的最大条数，0 表示全部写内联字符串
+     */
+    public void setMaxSharedStrings(int maxSharedStrings) {
+        this.maxSharedStrings = maxSharedStrings;
+    }
+
+    /**
+     * @param maxSharedStringLength 超过这个长度的字符串不进共享字符串表
+     */
+    public void setMaxSharedStringLength(int maxSharedStringLength) {
+        this.maxSharedStringLength = maxSharedStringLength;
+    }
+
+    /**
+     * @param maxRowsPerSheet 每个 sheet 的最大行数（含表头），2 ~ 1048576
+     */
+    public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+        if (maxRowsPerSheet < 2 || maxRowsPerSheet > MAX_ROWS_PER_SHEET) {
+            throw new IllegalArgumentException("maxRowsPerSheet 必须在 2 ~ " + MAX_ROWS_PER_SHEET + " 之间");
+        }
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    /**
+     * @param baseName 已经处理过非法字符的名称
+     * @param index    从 1 开始，第一个 sheet 不加序号
+     */
+    static String sheetName(String baseName, int index) {
+        if (index == 1) {
+            return baseName;
+        }
+        String suffix = " (" + index + ")";
+        return baseName.substring(0, Math.min(baseName.length(), MAX_SHEET_NAME_LENGTH - suffix.length())) + suffix;
+    }
+
+    static String columnName(int column) {
+        StringBuilder name = new StringBuilder();
+        for (int c = column + 1; c > 0; c = (c - 1) / 26) {
+            name.insert(0, (char) ('A' + (c - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    /**
+     * 一次 write 的状态
+     */
+    private class Session {
+
+        private final ZipOutputStream zip;
+
+        private final Writer writer;
+
+        private final String[] columnNames;
+
+        /**
+         * 共享字符串 -> 下标，按插入顺序就是下标顺序
+         */
+        private final Map<String, Integer> sharedStrings = new LinkedHashMap<>();
+
+        private long sharedStringRefs;
+
+        private final List<String> sheetNames = new ArrayList<>();
+
+        private final ZoneId zone = ZoneId.systemDefault();
+
+        Session(OutputStream out) {
+            this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16);
+            this.columnNames = new String[extractors.size()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = columnName(i);
+            }
+        }
+
+        long write(String sheetName, Iterator<? extends T> rows) throws IOException {
+            boolean withHeader = !headers.contains(null);
+            String baseName = WorkbookUtil.createSafeSheetName(sheetName);
+            long count = 0;
+            do {
+                sheetNames.add(sheetName(baseName, sheetNames.size() + 1));
+                beginEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml");
+                writer.write(XML_HEADER);
+                writer.write("<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>");
+                int rowNum = 0;
+                if (withHeader) {
+                    beginRow(++rowNum);
+                    for (int c = 0; c < columnNames.length; c++) {
+                        writeCell(c, rowNum, headers.get(c));
+                    }
+                    writer.write("</row>");
+                }
+                while (rowNum < maxRowsPerSheet && rows.hasNext()) {
+                    T row = rows.next();
+                    beginRow(++rowNum);
+                    for (int c = 0; c < columnNames.length; c++) {
+                        writeCell(c, rowNum, extractors.get(c).apply(row));
+                    }
+                    writer.write("</row>");
+                    count++;
+                }
+                writer.write("</sheetData></worksheet>");
+                endEntry();
+            } while (rows.hasNext());
+
+            writeSharedStrings();
+            writePart("xl/styles.xml", STYLES);
+            writeWorkbook();
+            zip.finish();
+            return count;
+        }
+
+        private void beginRow(int rowNum) throws IOException {
+            writer.write("<row r=\"");
+            writer.write(Integer.toString(rowNum));
+            writer.write("\">");
+        }
+
+        private void writeCell(int column, int rowNum, Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof Number) {
+                String number = numberText((Number) value);
+                if (number != null) {
+                    beginCell(column, rowNum, null, 0);
+                    writer.write("<v>");
+                    writer.write(number);
+                    writer.write("</v></c>");
+                    return;
+                }
+            } else if (value instanceof Boolean) {
+                beginCell(column, rowNum, "b", 0);
+                writer.write((Boolean) value ? "<v>1</v></c>" : "<v>0</v></c>");
+                return;
+            } else if (value instanceof Date) {
+                if (writeDate(column, rowNum, LocalDateTime.ofInstant(((Date) value).toInstant(), zone), STYLE_DATE_TIME)) {
+                    return;
+                }
+            } else if (value instanceof LocalDateTime) {
+                if (writeDate(column, rowNum, (LocalDateTime) value, STYLE_DATE_TIME)) {
+                    return;
+                }
+            } else if (value instanceof LocalDate) {
+                if (writeDate(column, rowNum, ((LocalDate) value).atStartOfDay(), STYLE_DATE)) {
+                    return;
+                }
+            }
+            writeString(column, rowNum, String.valueOf(value));
+        }
+
+        /**
+         * @return 1900-03-01 之前的日期返回 false，由调用方按字符串写
+         */
+        private boolean writeDate(int column, int rowNum, LocalDateTime dateTime, int style) throws IOException {
+            if (dateTime.toLocalDate().isBefore(FIRST_SERIAL_DATE)) {
+                return false;
+            }
+            double serial = (dateTime.toLocalDate().toEpochDay() - EXCEL_EPOCH_DAY)
+                    + dateTime.toLocalTime().toNanoOfDay() / NANOS_PER_DAY;
+            beginCell(column, rowNum, null, style);
+            writer.write("<v>");
+            writer.write(Double.toString(serial));
+            writer.write("</v></c>");
+            return true;
+        }
+
+        private void writeString(int column, int rowNum, String value) throws IOException {
+            Integer index = sharedStrings.get(value);
+            if (index == null && sharedStrings.size() < maxSharedStrings && value.length() <= maxSharedStringLength) {
+                index = sharedStrings.size();
+                sharedStrings.put(value, index);
+            }
+            if (index != null) {
+                sharedStringRefs++;
+                beginCell(column, rowNum, "s", 0);
+                writer.write("<v>");
+                writer.write(Integer.toString(index));
+                writer.write("</v></c>");
+            } else {
+                beginCell(column, rowNum, "inlineStr", 0);
+                writer.write("<is>");
+                writeText(value);
+                writer.write("</is></c>");
+            }
+        }
+
+        private void beginCell(int column, int rowNum, String type, int style) throws IOException {
+            writer.write("<c r=\"");
+            writer.write(columnNames[column]);
+            writer.write(Integer.toString(rowNum));
+            if (type != null) {
+                writer.write("\" t=\"");
+                writer.write(type);
+            }
+            if (style != 0) {
+                writer.write("\" s=\"");
+                writer.write(Integer.toString(style));
+            }
+            writer.write("\">");
+        }
+
+        private void writeText(String value) throws IOException {
+            boolean preserve = !value.isEmpty()
+                    && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+            writer.write(preserve ? "<t xml:space=\"preserve\">" : "<t>");
+            escape(value);
+            writer.write("</t>");
+        }
+
+        /**
+         * 转义 XML 特殊字符，丢掉 XML 1.0 不允许的控制字符
+         */
+        private void escape(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&':
+                        writer.write("&amp;");
+                        break;
+                    case '<':
+                        writer.write("&lt;");
+                        break;
+                    case '>':
+                        writer.write("&gt;");
+                        break;
+                    case '"':
+                        writer.write("&quot;");
+                        break;
+                    default:
+                        if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                            if (c < 0xFFFE) {
+                                writer.write(c);
+                            }
+                        }
+                        break;
+                }
+            }
+        }
+
+        private void writeSharedStrings() throws IOException {
+            beginEntry("xl/sharedStrings.xml");
+            writer.write(XML_HEADER);
+            writer.write("<sst xmlns=\"" + MAIN_NS + "\" count=\"" + sharedStringRefs
+                    + "\" uniqueCount=\"" + sharedStrings.size() + "\">");
+            for (String value : sharedStrings.keySet()) {
+                writer.write("<si>");
+                writeText(value);
+                writer.write("</si>");
+            }
+            writer.write("</sst>");
+            endEntry();
+        }
+
+        private void writeWorkbook() throws IOException {
+            int sheets = sheetNames.size();
+            StringBuilder types = new StringBuilder(XML_HEADER)
+                    .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                    .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                    .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                    .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                    .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>")
+                    .append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+            StringBuilder workbook = new StringBuilder(XML_HEADER)
+                    .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+            StringBuilder rels = new StringBuilder(XML_HEADER)
+                    .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+            for (int i = 1; i <= sheets; i++) {
+                types.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                        .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+                workbook.append("<sheet name=\"").append(attribute(sheetNames.get(i - 1)))
+                        .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+                rels.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(REL_NS)
+                        .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+            }
+            types.append("</Types>");
+            workbook.append("</sheets></workbook>");
+            rels.append("<Relationship Id=\"rId").append(sheets + 1).append("\" Type=\"").append(REL_NS)
+                    .append("/styles\" Target=\"styles.xml\"/>")
+                    .append("<Relationship Id=\"rId").append(sheets + 2).append("\" Type=\"").append(REL_NS)
+                    .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>")
+                    .append("</Relationships>");
+
+            writePart("xl/workbook.xml", workbook.toString());
+            writePart("xl/_rels/workbook.xml.rels", rels.toString());
+            writePart("[Content_Types].xml", types.toString());
+            writePart("_rels/.rels", XML_HEADER
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+        }
+
+        private String attribute(String value) {
+            return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+        }
+
+        private void writePart(String name, String content) throws IOException {
+            beginEntry(name);
+            writer.write(content);
+            endEntry();
+        }
+
+        private void beginEntry(String name) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+        }
+
+        private void endEntry() throws IOException {
+            writer.flush();
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * @return NaN、无穷大、超过 15 位有效数字的返回 null，按字符串写
+     */
+    private static String numberText(Number number) {
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return null;
+            }
+            return value == Math.rint(value) && Math.abs(value) < 1e15
+                    ? Long.toString((long) value) : Double.toString(value);
+        }
+        String text = number instanceof BigDecimal ? ((BigDecimal) number).toPlainString() : number.toString();
+        return text.length() > EXCEL_PRECISION && significantDigits(text) > EXCEL_PRECISION ? null : text;
+    }
+
+    /**
+     * 去掉符号、小数点、首尾的 0 之后的位数
+     */
+    private static int significantDigits(String number) {
+        int first = -1;
+        int last = -1;
+        int digits = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            digits++;
+            if (c != '0') {
+                if (first < 0) {
+                    first = digits;
+                }
+                last = digits;
+            }
+        }
+        return first < 0 ? 0 : last - first + 1;
+    }
+}
@@ -0,0 +1,485 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.metrics.UtilsMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 按文件内容缓存 sheet 的解析结果，同一个工作簿重复上传、模板反复读取时不再解析 XML <br>
+ * 1. 键 = SHA-256(文件内容) + sheet 名称 + minColumns + 编码版本，文件名、修改时间不参与 <br>
+ * 2. 解析结果编码成紧凑的二进制行文件（变长整数 + UTF-8），写在 directory 下，超过 maxDiskBytes 时按最近访问时间淘汰 <br>
+ * 3. 不超过 maxMemoryBytes / 4 的结果同时放在内存 LRU 里（解析后、磁盘命中后都会放入），内存总量按字节数计，不超过 maxMemoryBytes <br>
+ * 4. 命中时直接从内存或磁盘解码行，不打开 ZIP、不解析 XML；未命中时用 {@link XlsxCovertCsvReader#readerExcelDirect}
+ * 解析，边回调边写缓存文件，写完原子 rename <br>
+ * 5. 线程安全；同一个键同时未命中时会各自解析一次，结果相同，后写的覆盖先写的 <br>
+ * <pre>
+ * WorkbookParseCache cache = new WorkbookParseCache(new File("/tmp/xlsx-cache"), 64 &lt;&lt; 20, 1L &lt;&lt; 30);
+ * cache.read(file, 20, "Sheet1", row -&gt; handle(row));
+ * </pre>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+public class WorkbookParseCache {
+
+    /**
+     * 读取器的格式化逻辑或编码变化时加一，旧缓存自然失效
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'X', 'R', 'C', FORMAT_VERSION};
+
+    private static final String SUFFIX = ".rows";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final UtilsMetrics.Counter MEMORY_HITS =
+            UtilsMetrics.counter("utils.xlsx.cache.hits", "解析结果缓存命中次数", "tier", "memory");
+
+    private static final UtilsMetrics.Counter DISK_HITS =
+            UtilsMetrics.counter("utils.xlsx.cache.hits", "解析结果缓存命中次数", "tier", "disk");
+
+    private static final UtilsMetrics.Counter MISSES =
+            UtilsMetrics.counter("utils.xlsx.cache.misses", "解析结果缓存未命中次数");
+
+    private static final UtilsMetrics.Counter EVICTIONS =
+            UtilsMetrics.counter("utils.xlsx.cache.evictions", "淘汰的磁盘缓存文件数");
+
+    private final File directory;
+
+    private final long maxMemoryBytes;
+
+    private final long maxDiskBytes;
+
+    /**
+     * 键 -> 编码后的行，按访问顺序
+     */
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    /**
+     * @param directory      缓存文件目录
+     * @param maxMemoryBytes 内存层上限，0 表示不用内存层
+     * @param maxDiskBytes   磁盘层上限
+     */
+    public WorkbookParseCache(File directory, long maxMemoryBytes, long maxDiskBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录：" + directory);
+        }
+        this.directory = directory;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * 读取 sheet，命中缓存时不解析
+     *
+     * @param file        xlsx 文件
+     * @param minColumns  最小列数
+     * @param sheetName   sheet 名称
+     * @param rowConsumer 行回调
+     */
+    public void read(File file, int minColumns, String sheetName, Consumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        read(file, key(digest, minColumns, sheetName), minColumns, sheetName, rowConsumer);
+    }
+
+    /**
+     * 通过流读取，边落临时文件边计算摘要；命中缓存时临时文件直接删除。不会关闭传入的流
+     */
+    public void read(InputStream in, int minColumns, String sheetName, Consumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        MessageDigest digest = sha256();
+        File tmp = File.createTempFile("xlsx-cache", ".xlsx");
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+            }
+            read(tmp, key(digest, minColumns, sheetName), minColumns, sheetName, rowConsumer);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    public List<String[]> readAll(File file, int minColumns, String sheetName)
+            throws IOException, ParserConfigurationException, SAXException {
+        List<String[]> rows = new ArrayList<>();
+        read(file, minColumns, sheetName, rows::add);
+        return rows;
+    }
+
+    /**
+     * @return 内存层当前占用的字节数
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return 磁盘层当前占用的字节数
+     */
+    public long getDiskBytes() {
+        long total = 0;
+        for (File cached : cachedFiles()) {
+            total += cached.length();
+        }
+        return total;
+    }
+
+    /**
+     * 清空两层缓存
+     */
+    public void clear() throws IOException {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        for (File cached : cachedFiles()) {
+            Files.deleteIfExists(cached.toPath());
+        }
+    }
+
+    private void read(File file, String key, int minColumns, String sheetName, Consumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        byte[] cached = getMemory(key);
+        if (cached != null) {
+            MEMORY_HITS.increment();
+            RowReader reader = RowReader.of(cached);
+            reader.readHeader();
+            reader.forEach(rowConsumer);
+            return;
+        }
+        Path path = new File(directory, key + SUFFIX).toPath();
+        if (readDisk(key, path, rowConsumer)) {
+            return;
+        }
+        MISSES.increment();
+        parse(file, key, path, minColumns, sheetName, rowConsumer);
+    }
+
+    /**
+     * 从磁盘层读取；不超过 maxMemoryBytes / 4 的文件一次读入，解码完放进内存层，下次直接内存命中
+     *
+     * @return 是否命中
+     */
+    private boolean readDisk(String key, Path path, Consumer<String[]> rowConsumer) throws IOException {
+        try {
+            byte[] bytes = Files.size(path) <= maxMemoryBytes / 4 ? Files.readAllBytes(path) : null;
+            // 大文件边读边解码
+            try (InputStream in = bytes == null ? Files.newInputStream(path) : null) {
+                RowReader reader = bytes == null ? new RowReader(in) : RowReader.of(bytes);
+                if (!reader.readHeader()) {
+                    log.warn("解析结果缓存文件头不符，重新解析：{}", path);
+                    return false;
+                }
+                // 命中时刷新访问时间，磁盘层按它淘汰
+                path.toFile().setLastModified(System.currentTimeMillis());
+                DISK_HITS.increment();
+                try {
+                    reader.forEach(rowConsumer);
+                } catch (IOException e) {
+                    // 已经回调的行无法撤回，删除损坏的文件后把异常抛给调用方
+                    Files.deleteIfExists(path);
+                    throw e;
+                }
+            }
+            if (bytes != null) {
+                putMemory(key, bytes);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            // 未命中
+            return false;
+        }
+    }
+
+    private void parse(File file, String key, Path target, int minColumns, String sheetName,
+                       Consumer<String[]> rowConsumer)
+            throws IOException, ParserConfigurationException, SAXException {
+        Path tmp = Files.createTempFile(directory.toPath(), key, ".tmp");
+        try {
+            try (RowWriter writer = new RowWriter(Files.newOutputStream(tmp))) {
+                XlsxCovertCsvReader.readerExcelDirect(file.getPath(), minColumns, sheetName, row -> {
+                    try {
+                        writer.write(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rowConsumer.accept(row);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        long size = Files.size(target);
+        if (size <= maxMemoryBytes / 4) {
+            putMemory(key, Files.readAllBytes(target));
+        }
+        evictDisk();
+    }
+
+    private synchronized byte[] getMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void putMemory(String key, byte[] bytes) {
+        byte[] previous = memory.put(key, bytes);
+        memoryBytes += bytes.length - (previous == null ? 0 : previous.length);
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * 磁盘层超过上限时按最后访问时间从旧到新删除
+     */
+    private void evictDisk() {
+        File[] files = cachedFiles();
+        long total = 0;
+        for (File cached : files) {
+            total += cached.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File cached : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            long length = cached.length();
+            if (cached.delete()) {
+                total -= length;
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    private File[] cachedFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        return files == null ? new File[0] : files;
+    }
+
+    private static String key(MessageDigest contentDigest, int minColumns, String sheetName) {
+        MessageDigest digest = sha256();
+        digest.update(contentDigest.digest());
+        digest.update((sheetName + '\n' + minColumns + '\n' + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 行编码：文件头 MAGIC；每行 varint(列数 + 1)，每列 varint(字节数 + 1) + UTF-8，0 表示 null；以 varint 0 结束
+     */
+    static final class RowWriter implements AutoCloseable {
+
+        private final OutputStream out;
+
+        RowWriter(OutputStream out) throws IOException {
+            this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+            this.out.write(MAGIC);
+        }
+
+        void write(String[] row) throws IOException {
+            writeVarint(row.length + 1);
+            for (String cell : row) {
+                if (cell == null) {
+                    writeVarint(0);
+                } else {
+                    byte[] bytes = cell.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(bytes.length + 1);
+                    out.write(bytes);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writeVarint(0);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+
+    /**
+     * 解码 {@link RowWriter} 的输出，内存层直接在数组上解码，磁盘层自带缓冲区
+     */
+    static final class RowReader {
+
+        private final InputStream in;
+
+        private byte[] buffer;
+
+        private int position;
+
+        private int limit;
+
+        RowReader(InputStream in) {
+            this.in = in;
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+
+        private RowReader(byte[] bytes) {
+            this.in = null;
+            this.buffer = bytes;
+            this.limit = bytes.length;
+        }
+
+        static RowReader of(byte[] bytes) {
+            return new RowReader(bytes);
+        }
+
+        /**
+         * @return 文件头和版本是否相符
+         */
+        boolean readHeader() throws IOException {
+            for (byte b : MAGIC) {
+                if (position == limit && in != null && !tryFill()) {
+                    return false;
+                }
+                if (position == limit || buffer[position++] != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void forEach(Consumer<String[]> rowConsumer) throws IOException {
+            for (int columns; (columns = readVarint()) != 0; ) {
+                String[] row = new String[columns - 1];
+                for (int i = 0; i < row.length; i++) {
+                    int length = readVarint();
+                    if (length != 0) {
+                        row[i] = readString(length - 1);
+                    }
+                }
+                rowConsumer.accept(row);
+            }
+        }
+
+        private String readString(int length) throws IOException {
+            if (limit - position < length) {
+                fill(length);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("变长整数格式错误");
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                fill(1);
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private boolean tryFill() throws IOException {
+            int n = in.read(buffer, 0, buffer.length);
+            if (n <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = n;
+            return true;
+        }
+
+        /**
+         * 保证缓冲区里至少有 need 个字节，不够时把剩余部分移到开头再读
+         */
+        private void fill(int need) throws IOException {
+            if (in == null) {
+                throw new IOException("缓存数据不完整");
+            }
+            int remaining = limit - position;
+            if (need > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(need, buffer.length * 2));
+            }
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            limit = remaining;
+            while (limit < need) {
+                int n = in.read(buffer, limit, buffer.length - limit);
+                if (n < 0) {
+                    throw new IOException("缓存数据不完整");
+                }
+                limit += n;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.qiusm.utils.fastjson;
+
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.JSONReaderScanner;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializeWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 顶层 JSON 数组的流式读写 <br>
+ * 1. 读：基于 {@link JSONReader}，每解析出一个元素就交给 consumer，不会把整个数组放进内存 <br>
+ * 2. 写：{@link JSONSerializer} 从 Iterator 逐个取元素写出，每 {@link #FLUSH_EVERY} 个元素刷一次，缓冲区不会无限增长 <br>
+ * 3. 读写分别使用 {@link JsonCodec} 的 ParserConfig、SerializeConfig，输出与 {@link JsonCodec#toJson} 一致，
+ * {@code @JSONField} 的 alternateNames 照常生效 <br>
+ * 4. read 读完（或出错）后关闭传入的 Reader/InputStream；write 只 flush，不关闭传入的流 <br>
+ *
+ * @author qiushengming
+ */
+public class JsonArrayStreamCodec {
+
+    static final int FLUSH_EVERY = 256;
+
+    private final ParserConfig parserConfig;
+
+    private final SerializeConfig serializeConfig;
+
+    public JsonArrayStreamCodec() {
+        this(JsonCodec.getInstance());
+    }
+
+    public JsonArrayStreamCodec(JsonCodec codec) {
+        this.parserConfig = codec.getParserConfig();
+        this.serializeConfig = codec.getSerializeConfig();
+    }
+
+    /**
+     * 逐个读取数组元素，结束后关闭 reader
+     *
+     * @param reader   输入，内容必须是 JSON 数组
+     * @param clazz    元素类型
+     * @param consumer 元素处理
+     * @return 读取的元素个数
+     */
+    public <T> long read(Reader reader, Class<T> clazz, Consumer<? super T> consumer) {
+        JSONReaderScanner scanner = new JSONReaderScanner(reader);
+        JSONReader jsonReader = new JSONReader(new DefaultJSONParser(scanner, parserConfig));
+        try {
+            long count = 0;
+            jsonReader.startArray();
+            while (jsonReader.hasNext()) {
+                consumer.accept(jsonReader.readObject(clazz));
+                count++;
+            }
+            jsonReader.endArray();
+            return count;
+        } finally {
+            // 归还缓冲区并关闭 reader；不用 jsonReader.close()，解析出错时它会再抛一个异常盖住原来的
+            scanner.close();
+        }
+    }
+
+    /**
+     * 按 UTF-8 逐个读取数组元素，结束后关闭 in
+     */
+    public <T> long read(InputStream in, Class<T> clazz, Consumer<? super T> consumer) {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8), clazz, consumer);
+    }
+
+    /**
+     * 逐个写出元素，组成一个 JSON 数组
+     *
+     * @return 写出的元素个数
+     */
+    public long write(Writer writer, Iterator<?> iterator) throws IOException {
+        SerializeWriter out = new SerializeWriter(writer);
+        try {
+            JSONSerializer serializer = new JSONSerializer(out, serializeConfig);
+            long count = 0;
+            out.write('[');
+            while (iterator.hasNext()) {
+                if (count > 0) {
+                    out.write(',');
+                }
+                serializer.write(iterator.next());
+                if (++count % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+            out.write(']');
+            out.flush();
+            return count;
+        } finally {
+            // 归还按线程复用的缓冲区，不会关闭 writer
+            out.close();
+        }
+    }
+
+    public long write(Writer writer, Stream<?> stream) throws IOException {
+        return write(writer, stream.iterator());
+    }
+
+    /**
+     * 按 UTF-8 逐个写出元素
+     */
+    public long write(OutputStream out, Iterator<?> iterator) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = write(writer, iterator);
+        writer.flush();
+        return count;
+    }
+}
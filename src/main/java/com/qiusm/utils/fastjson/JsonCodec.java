@@ -0,0 +1,92 @@
+package com.qiusm.utils.fastjson;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * fastjson 编解码 <br>
+ * 1. 持有自己的 {@link SerializeConfig}/{@link ParserConfig}，创建时就为模型类生成 ASM 序列化器和反序列化器，
+ * 第一次请求不再承担生成开销，也不用在全局配置的缓存里查找 <br>
+ * 2. 写出走 fastjson 的 SerializeWriter，字符/字节缓冲区按线程复用，不要再包一层 StringWriter <br>
+ * 3. {@link com.alibaba.fastjson.annotation.JSONField} 的 name/alternateNames 照常生效 <br>
+ *
+ * @author qiushengming
+ */
+public class JsonCodec {
+
+    private static final JsonCodec INSTANCE = new JsonCodec(OrgAccountModel.class);
+
+    private static final SerializerFeature[] NO_FEATURES = new SerializerFeature[0];
+
+    private final SerializeConfig serializeConfig;
+
+    private final ParserConfig parserConfig;
+
+    /**
+     * @param modelClasses 需要预先生成编解码器的模型类
+     */
+    public JsonCodec(Class<?>... modelClasses) {
+        this.serializeConfig = new SerializeConfig();
+        this.parserConfig = new ParserConfig();
+        register(modelClasses);
+    }
+
+    public static JsonCodec getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 为模型类生成并注册编解码器
+     */
+    public void register(Class<?>... modelClasses) {
+        for (Class<?> clazz : modelClasses) {
+            serializeConfig.put(clazz, serializeConfig.createJavaBeanSerializer(clazz));
+            parserConfig.putDeserializer(clazz, parserConfig.createJavaBeanDeserializer(clazz, clazz));
+        }
+    }
+
+    public String toJson(Object object) {
+        return JSON.toJSONString(object, serializeConfig, NO_FEATURES);
+    }
+
+    public byte[] toJsonBytes(Object object) {
+        return JSON.toJSONBytes(object, serializeConfig, NO_FEATURES);
+    }
+
+    /**
+     * 直接以 UTF-8 写到输出流，不生成中间的 String
+     */
+    public void writeTo(OutputStream out, Object object) throws IOException {
+        JSON.writeJSONString(out, StandardCharsets.UTF_8, object, serializeConfig, null, null,
+                JSON.DEFAULT_GENERATE_FEATURE, NO_FEATURES);
+    }
+
+    public <T> T parse(String json, Type type) {
+        return JSON.parseObject(json, type, parserConfig);
+    }
+
+    public <T> T parse(byte[] json, Type type) {
+        return JSON.parseObject(json, 0, json.length, StandardCharsets.UTF_8, type, parserConfig,
+                null, JSON.DEFAULT_PARSER_FEATURE);
+    }
+
+    public <T> List<T> parseArray(String json, Class<T> clazz) {
+        return JSON.parseArray(json, clazz, parserConfig);
+    }
+
+    public SerializeConfig getSerializeConfig() {
+        return serializeConfig;
+    }
+
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
+}
@@ -0,0 +1,55 @@
+package com.qiusm.utils.id;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * 通过 {@link IdController} 的二进制批量接口取 ID <br>
+ * 只用 JDK 的 HttpURLConnection，调用方不需要额外依赖；响应读完后连接由 JDK 复用（keep-alive） <br>
+ *
+ * @author qiushengming
+ */
+public class HttpIdSource implements IdSource {
+
+    private final String baseUrl;
+
+    private final int timeoutMillis;
+
+    /**
+     * @param baseUrl       服务地址，例如 http://127.0.0.1:8080
+     * @param timeoutMillis 连接和读取超时
+     */
+    public HttpIdSource(String baseUrl, int timeoutMillis) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public long[] fetch(int count) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/ids?count=" + count).openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Accept", "application/octet-stream");
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            try (InputStream error = connection.getErrorStream()) {
+                // 读完错误响应，连接才能复用
+                while (error != null && error.read() >= 0) {
+                    // skip
+                }
+            }
+            throw new IOException("获取 ID 失败，HTTP " + status + "：" + baseUrl);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()))) {
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readLong();
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.qiusm.utils.id;
+
+import com.qiusm.utils.SnowflakeUtil;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对外发放 {@link SnowflakeUtil} 的 ID <br>
+ * 1. GET /ids/next 返回一个 ID（纯文本） <br>
+ * 2. GET /ids?count=N 返回 N 个递增的 ID；默认 JSON 字符串数组，
+ * Accept: application/octet-stream 时返回 N * 8 字节的大端 long，客户端见 {@link HttpIdSource} <br>
+ * 3. ID 超过 2^53，JSON 数字在 JavaScript 里会丢精度，所以文本接口都按字符串返回，与导入任务 ID 一致 <br>
+ * 4. 批量接口只加一次锁，见 {@link SnowflakeUtil#nextIds(int)} <br>
+ *
+ * @author qiushengming
+ */
+@RestController
+@RequestMapping("/ids")
+public class IdController {
+
+    /**
+     * 单次批量的上限，约 10 毫秒的序列
+     */
+    public static final int MAX_COUNT = 10000;
+
+    private final SnowflakeUtil snowflake = SnowflakeUtil.getInstance();
+
+    @GetMapping("/next")
+    public String next() {
+        return String.valueOf(snowflake.nextId());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<String>> batch(@RequestParam(value = "count", defaultValue = "1") int count) {
+        if (count <= 0 || count > MAX_COUNT) {
+            return ResponseEntity.badRequest().build();
+        }
+        long[] ids = snowflake.nextIds(count);
+        List<String> body = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            body.add(String.valueOf(id));
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> batchBinary(@RequestParam(value = "count", defaultValue = "1") int count) {
+        if (count <= 0 || count > MAX_COUNT) {
+            return ResponseEntity.badRequest().build();
+        }
+        long[] ids = snowflake.nextIds(count);
+        ByteBuffer buffer = ByteBuffer.allocate(ids.length * 8);
+        buffer.asLongBuffer().put(ids);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(buffer.array());
+    }
+}
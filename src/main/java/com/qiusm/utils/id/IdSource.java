@@ -0,0 +1,17 @@
+package com.qiusm.utils.id;
+
+import java.io.IOException;
+
+/**
+ * 批量获取 ID 的来源，例如 {@link HttpIdSource}
+ *
+ * @author qiushengming
+ */
+public interface IdSource {
+
+    /**
+     * @param count 个数
+     * @return 递增的 ID，长度等于 count
+     */
+    long[] fetch(int count) throws IOException;
+}
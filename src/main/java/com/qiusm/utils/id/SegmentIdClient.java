@@ -0,0 +1,129 @@
+package com.qiusm.utils.id;
+
+import com.qiusm.utils.metrics.UtilsMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 按段预取的 ID 客户端 <br>
+ * 1. 每次从 {@link IdSource} 取 segmentSize 个 ID，本地逐个发放 <br>
+ * 2. 当前段剩余不超过 prefetchThreshold 时在后台取下一段，正常情况下 nextId 不会等网络 <br>
+ * 3. 下一段还没回来时 nextId 阻塞等待；取失败时抛 {@link UncheckedIOException}，下次调用重新取 <br>
+ * 4. 线程安全；ID 在单个客户端内递增，多个客户端之间只保证不重复 <br>
+ * <pre>
+ * SegmentIdClient ids = new SegmentIdClient(new HttpIdSource("http://127.0.0.1:8080", 1000), 1000);
+ * long id = ids.nextId();
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public class SegmentIdClient implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1000;
+
+    private static final UtilsMetrics.Counter FETCHES =
+            UtilsMetrics.counter("utils.id.client.fetches", "客户端取号段的次数");
+
+    /**
+     * 用完当前段时下一段还没回来、需要等待的次数，持续增长说明段太小或阈值太低
+     */
+    private static final UtilsMetrics.Counter STALLS =
+            UtilsMetrics.counter("utils.id.client.stalls", "客户端等待号段的次数");
+
+    private final IdSource source;
+
+    private final int segmentSize;
+
+    private final int prefetchThreshold;
+
+    private final ExecutorService executor;
+
+    private long[] current = new long[0];
+
+    private int position;
+
+    private CompletableFuture<long[]> next;
+
+    public SegmentIdClient(IdSource source, int segmentSize) {
+        this(source, segmentSize, segmentSize / 5);
+    }
+
+    /**
+     * @param source            ID 来源
+     * @param segmentSize       每段个数
+     * @param prefetchThreshold 当前段剩余多少个时开始预取下一段
+     */
+    public SegmentIdClient(IdSource source, int segmentSize, int prefetchThreshold) {
+        if (segmentSize <= 0 || prefetchThreshold < 0 || prefetchThreshold >= segmentSize) {
+            throw new IllegalArgumentException("需要 0 <= prefetchThreshold < segmentSize");
+        }
+        this.source = source;
+        this.segmentSize = segmentSize;
+        this.prefetchThreshold = prefetchThreshold;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "id-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return 下一个 ID
+     * @throws UncheckedIOException 取号段失败
+     */
+    public synchronized long nextId() {
+        if (position >= current.length) {
+            if (next == null) {
+                next = fetchAsync();
+            } else if (!next.isDone()) {
+                STALLS.increment();
+            }
+            CompletableFuture<long[]> pending = next;
+            next = null;
+            current = await(pending);
+            position = 0;
+        }
+        long id = current[position++];
+        if (next == null && current.length - position <= prefetchThreshold) {
+            next = fetchAsync();
+        }
+        return id;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<long[]> fetchAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                FETCHES.increment();
+                return source.fetch(segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private static long[] await(CompletableFuture<long[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw (UncheckedIOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+}
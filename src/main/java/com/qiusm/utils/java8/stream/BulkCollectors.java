@@ -0,0 +1,226 @@
+package com.qiusm.utils.java8.stream;
+
+import com.qiusm.utils.collection.IntArrayList;
+import com.qiusm.utils.collection.IntObjectMap;
+import com.qiusm.utils.collection.LongArrayList;
+import com.qiusm.utils.collection.LongObjectMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * 大集合转 Map、分组用的收集器 <br>
+ * 1. toMap：按预期大小预分配 HashMap，百万元素不再反复扩容 <br>
+ * 2. toLongMap / toIntMap：key 为 long/int 时用 {@link LongObjectMap}/{@link IntObjectMap}，key 不装箱，没有 Entry 对象 <br>
+ * 3. groupingToLongList / groupingToIntList：分组后的值放进 {@link LongArrayList}/{@link IntArrayList}，值不装箱 <br>
+ * 4. 合并函数都支持并行流：把小的一半并入大的一半，key 重复时与 {@link java.util.stream.Collectors#toMap} 一样抛异常或走 merge <br>
+ * 5. 并行流中每个分段都会按 expectedSize 预分配，并行时建议不传 expectedSize <br>
+ *
+ * <pre>
+ * Map&lt;Integer, Object&gt; map = list.stream().collect(BulkCollectors.toMap(Object::hashCode, v -&gt; v, list.size()));
+ * LongObjectMap&lt;Domain&gt; byId = list.stream().collect(BulkCollectors.toLongMap(Domain::getId, v -&gt; v, list.size()));
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public final class BulkCollectors {
+
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private BulkCollectors() {
+    }
+
+    /**
+     * 计算放入 expectedSize 个元素不扩容所需的 HashMap 初始容量
+     */
+    public static int hashMapCapacity(int expectedSize) {
+        if (expectedSize < 3) {
+            return expectedSize + 1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(expectedSize / 0.75d));
+    }
+
+    /**
+     * 预分配的 HashMap，key 重复时抛 {@link IllegalStateException}
+     */
+    public static <T, K, V> Collector<T, ?, Map<K, V>> toMap(Function<? super T, ? extends K> keyMapper,
+                                                             Function<? super T, ? extends V> valueMapper,
+                                                             int expectedSize) {
+        return toMap(keyMapper, valueMapper, throwingMerger(), expectedSize);
+    }
+
+    /**
+     * 预分配的 HashMap，key 重复时用 mergeFunction 合并
+     */
+    public static <T, K, V> Collector<T, ?, Map<K, V>> toMap(Function<? super T, ? extends K> keyMapper,
+                                                             Function<? super T, ? extends V> valueMapper,
+                                                             BinaryOperator<V> mergeFunction,
+                                                             int expectedSize) {
+        return Collector.of(
+                () -> new HashMap<>(hashMapCapacity(expectedSize)),
+                (map, element) -> map.merge(keyMapper.apply(element), valueMapper.apply(element), mergeFunction),
+                (left, right) -> {
+                    if (left.size() < right.size()) {
+                        // 小的并入大的；merge 的参数顺序要保持 左 在前
+                        left.forEach((k, v) -> right.merge(k, v, (r, l) -> mergeFunction.apply(l, r)));
+                        return right;
+                    }
+                    right.forEach((k, v) -> left.merge(k, v, mergeFunction));
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T, V> Collector<T, ?, LongObjectMap<V>> toLongMap(ToLongFunction<? super T> keyMapper,
+                                                                     Function<? super T, ? extends V> valueMapper) {
+        return toLongMap(keyMapper, valueMapper, throwingMerger(), DEFAULT_EXPECTED_SIZE);
+    }
+
+    public static <T, V> Collector<T, ?, LongObjectMap<V>> toLongMap(ToLongFunction<? super T> keyMapper,
+                                                                     Function<? super T, ? extends V> valueMapper,
+                                                                     int expectedSize) {
+        return toLongMap(keyMapper, valueMapper, throwingMerger(), expectedSize);
+    }
+
+    /**
+     * long 为 key，key 不装箱；value 为 null 时与 HashMap.merge 一样会抛 NPE
+     */
+    public static <T, V> Collector<T, ?, LongObjectMap<V>> toLongMap(ToLongFunction<? super T> keyMapper,
+                                                                     Function<? super T, ? extends V> valueMapper,
+                                                                     BinaryOperator<V> mergeFunction,
+                                                                     int expectedSize) {
+        return Collector.of(
+                () -> new LongObjectMap<>(expectedSize),
+                (map, element) -> map.merge(keyMapper.applyAsLong(element), requireValue(valueMapper.apply(element)), mergeFunction),
+                (left, right) -> {
+                    if (left.size() < right.size()) {
+                        left.forEach((k, v) -> right.merge(k, v, (r, l) -> mergeFunction.apply(l, r)));
+                        return right;
+                    }
+                    right.forEach((k, v) -> left.merge(k, v, mergeFunction));
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T, V> Collector<T, ?, IntObjectMap<V>> toIntMap(ToIntFunction<? super T> keyMapper,
+                                                                   Function<? super T, ? extends V> valueMapper) {
+        return toIntMap(keyMapper, valueMapper, throwingMerger(), DEFAULT_EXPECTED_SIZE);
+    }
+
+    public static <T, V> Collector<T, ?, IntObjectMap<V>> toIntMap(ToIntFunction<? super T> keyMapper,
+                                                                   Function<? super T, ? extends V> valueMapper,
+                                                                   int expectedSize) {
+        return toIntMap(keyMapper, valueMapper, throwingMerger(), expectedSize);
+    }
+
+    /**
+     * int 为 key，key 不装箱；value 为 null 时与 HashMap.merge 一样会抛 NPE
+     */
+    public static <T, V> Collector<T, ?, IntObjectMap<V>> toIntMap(ToIntFunction<? super T> keyMapper,
+                                                                   Function<? super T, ? extends V> valueMapper,
+                                                                   BinaryOperator<V> mergeFunction,
+                                                                   int expectedSize) {
+        return Collector.of(
+                () -> new IntObjectMap<>(expectedSize),
+                (map, element) -> map.merge(keyMapper.applyAsInt(element), requireValue(valueMapper.apply(element)), mergeFunction),
+                (left, right) -> {
+                    if (left.size() < right.size()) {
+                        left.forEach((k, v) -> right.merge(k, v, (r, l) -> mergeFunction.apply(l, r)));
+                        return right;
+                    }
+                    right.forEach((k, v) -> left.merge(k, v, mergeFunction));
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 按 classifier 分组，组内的值收集为 {@link LongArrayList}，顺序与流中一致
+     */
+    public static <T, K> Collector<T, ?, Map<K, LongArrayList>> groupingToLongList(
+            Function<? super T, ? extends K> classifier, ToLongFunction<? super T> valueMapper) {
+        return Collector.of(
+                HashMap::new,
+                (map, element) -> map.computeIfAbsent(classifier.apply(element), k -> new LongArrayList())
+                        .add(valueMapper.applyAsLong(element)),
+                (left, right) -> {
+                    right.forEach((k, list) -> left.merge(k, list, (l, r) -> {
+                        l.addAll(r);
+                        return l;
+                    }));
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 按 long 分组（例如按 ID），组内的值收集为 {@link LongArrayList}，key 和值都不装箱
+     */
+    public static <T> Collector<T, ?, LongObjectMap<LongArrayList>> groupingByLongToLongList(
+            ToLongFunction<? super T> classifier, ToLongFunction<? super T> valueMapper) {
+        return Collector.of(
+                LongObjectMap::new,
+                (map, element) -> map.computeIfAbsent(classifier.applyAsLong(element), k -> new LongArrayList())
+                        .add(valueMapper.applyAsLong(element)),
+                (left, right) -> {
+                    right.forEach((k, list) -> left.merge(k, list, (l, r) -> {
+                        l.addAll(r);
+                        return l;
+                    }));
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 按 classifier 分组，组内的值收集为 {@link IntArrayList}，顺序与流中一致
+     */
+    public static <T, K> Collector<T, ?, Map<K, IntArrayList>> groupingToIntList(
+            Function<? super T, ? extends K> classifier, ToIntFunction<? super T> valueMapper) {
+        return Collector.of(
+                HashMap::new,
+                (map, element) -> map.computeIfAbsent(classifier.apply(element), k -> new IntArrayList())
+                        .add(valueMapper.applyAsInt(element)),
+                (left, right) -> {
+                    right.forEach((k, list) -> left.merge(k, list, (l, r) -> {
+                        l.addAll(r);
+                        return l;
+                    }));
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 收集为 {@link LongArrayList}
+     */
+    public static <T> Collector<T, ?, LongArrayList> toLongList(ToLongFunction<? super T> mapper) {
+        return Collector.of(
+                LongArrayList::new,
+                (list, element) -> list.add(mapper.applyAsLong(element)),
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static <V> BinaryOperator<V> throwingMerger() {
+        return (u, v) -> {
+            throw new IllegalStateException(String.format("Duplicate key (attempted merging values %s and %s)", u, v));
+        };
+    }
+
+    private static <V> V requireValue(V value) {
+        if (value == null) {
+            throw new NullPointerException("value 不能为 null");
+        }
+        return value;
+    }
+}
@@ -1,5 +1,7 @@
 package com.qiusm.utils.java8.stream;
 
+import com.qiusm.utils.collection.IntObjectMap;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -24,4 +26,19 @@ public class StreamOper {
                         (u, v) -> u,
                         HashMap::new));
     }
+
+    /**
+     * 大集合 List转Map：预分配容量；key 是 int/long 时用 {@link BulkCollectors#toIntMap} 避免装箱
+     */
+    public void listToMapBulk() {
+        List<Object> objectList = new ArrayList<>();
+        Map<Integer, Object> presized =
+                objectList.stream().collect(BulkCollectors.toMap(Object::hashCode, v -> v,
+                        (u, v) -> u,
+                        objectList.size()));
+        IntObjectMap<Object> primitive =
+                objectList.stream().collect(BulkCollectors.toIntMap(Object::hashCode, v -> v,
+                        (u, v) -> u,
+                        objectList.size()));
+    }
 }
@@ -0,0 +1,411 @@
+package com.qiusm.utils.logstash;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步批量发送到 logstash 的 appender <br>
+ * 1. 记录日志的线程只做 prepareForDeferredProcessing 和入队（{@link RingBuffer}，无锁），JSON 编码和网络发送都在后台线程 <br>
+ * 2. 后台线程攒够 batchSize 条或距上次发送超过 flushIntervalMillis 时发送一批 <br>
+ * 3. 缓冲区满时按 {@link DropPolicy} 处理，logstash 慢或者挂了不会拖慢业务请求 <br>
+ * 4. 指标：{@link #getQueueDepth()}、{@link #getDroppedCount()}、发送耗时 <br>
+ * 5. 配置了 spillDirectory 时，发送失败的批次写入 {@link DiskSpillQueue}，之后的日志也先落盘保证顺序，
+ * 连接恢复后按顺序重放，不再丢弃 <br>
+ * 6. stop 最多等 maxFlushTimeMillis；shipper 和溢出目录由后台线程退出时关闭，等不到时 stop 先返回，后台线程继续发完 <br>
+ *
+ * <pre>
+ * &lt;appender name="LOGSTASH" class="com.qiusm.utils.logstash.AsyncBatchLogstashAppender"&gt;
+ *     &lt;destination&gt;localhost:8065&lt;/destination&gt;
+ *     &lt;appName&gt;utils&lt;/appName&gt;
+ *     &lt;bufferSize&gt;8192&lt;/bufferSize&gt;
+ *     &lt;batchSize&gt;500&lt;/batchSize&gt;
+ *     &lt;dropPolicy&gt;DROP_NEWEST&lt;/dropPolicy&gt;
+ *     &lt;spillDirectory&gt;/tmp/logs/spill&lt;/spillDirectory&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public class AsyncBatchLogstashAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private String destination = "localhost:8065";
+    private String appName = "utils";
+    private int bufferSize = 8192;
+    private int batchSize = 500;
+    private long flushIntervalMillis = 1000;
+    private long reconnectDelayMillis = 2000;
+    private long blockTimeoutMillis = 100;
+    private int connectTimeoutMillis = 3000;
+    private DropPolicy dropPolicy = DropPolicy.DROP_NEWEST;
+    private boolean includeCallerData;
+    private String spillDirectory;
+    private int spillSegmentSize = 64 * 1024 * 1024;
+    private long spillMaxBytes = 1024L * 1024 * 1024;
+    private DiskSpillQueue.FsyncPolicy spillFsyncPolicy = DiskSpillQueue.FsyncPolicy.INTERVAL;
+    private long spillFsyncIntervalMillis = 1000;
+    /**
+     * stop 等待后台线程发完的时间，0 表示 flushIntervalMillis + reconnectDelayMillis + 5 秒
+     */
+    private long maxFlushTimeMillis;
+    /**
+     * 每轮最多重放的批次数，避免重放期间环形缓冲区得不到消费
+     */
+    private int spillReplayBatches = 10;
+
+    private LogShipper shipper;
+    private LogEventJsonEncoder encoder;
+    private RingBuffer<ILoggingEvent> buffer;
+    private DiskSpillQueue spill;
+    private long nextAttemptAt;
+    private Thread worker;
+    private volatile boolean running;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder sendCount = new LongAdder();
+    private final LongAdder totalSendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+    private volatile long lastSendNanos;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (batchSize <= 0 || bufferSize <= 0) {
+            addError("batchSize 和 bufferSize 必须大于 0");
+            return;
+        }
+        if (shipper == null) {
+            int colon = destination.lastIndexOf(':');
+            if (colon <= 0) {
+                addError("destination 格式应为 host:port，当前为 " + destination);
+                return;
+            }
+            shipper = new TcpLogShipper(destination.substring(0, colon),
+                    Integer.parseInt(destination.substring(colon + 1)), connectTimeoutMillis);
+        }
+        if (spillDirectory != null && !spillDirectory.isEmpty()) {
+            try {
+                spill = new DiskSpillQueue(new File(spillDirectory), spillSegmentSize, spillMaxBytes,
+                        spillFsyncPolicy, spillFsyncIntervalMillis);
+            } catch (IOException e) {
+                addError("初始化溢出目录失败：" + spillDirectory, e);
+                return;
+            }
+        }
+        encoder = new LogEventJsonEncoder(appName);
+        buffer = new RingBuffer<>(bufferSize);
+        running = true;
+        worker = new Thread(this::work, "logstash-appender-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(worker);
+        long timeout = maxFlushTimeMillis > 0
+                ? maxFlushTimeMillis : flushIntervalMillis + reconnectDelayMillis + TimeUnit.SECONDS.toMillis(5);
+        try {
+            worker.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            // 不中断：中断会让溢出目录的 FileChannel 关闭，反而丢日志
+            addWarn("后台线程 " + timeout + " 毫秒内没有发送完，缓冲区剩余 " + buffer.size()
+                    + " 条，由后台线程继续发送并关闭连接");
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) {
+            event.getCallerData();
+        }
+        if (buffer.offer(event)) {
+            return;
+        }
+        switch (dropPolicy) {
+            case DROP_OLDEST:
+                while (!buffer.offer(event)) {
+                    if (buffer.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                return;
+            case BLOCK:
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                    if (buffer.offer(event)) {
+                        return;
+                    }
+                }
+                dropped.increment();
+                return;
+            case DROP_NEWEST:
+            default:
+                dropped.increment();
+        }
+    }
+
+    private void work() {
+        try {
+            drain();
+        } finally {
+            // 在后台线程上关闭，stop 等待超时也不会关掉正在使用的 shipper 和溢出目录
+            shipper.close();
+            if (spill != null) {
+                spill.close();
+            }
+        }
+    }
+
+    private void drain() {
+        List<byte[]> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.currentTimeMillis();
+        while (running || buffer.size() > 0) {
+            int drained = buffer.drain(event -> batch.add(encode(event)), batchSize - batch.size());
+            long now = System.currentTimeMillis();
+            boolean due = now - lastFlush >= flushIntervalMillis || !running;
+            if (batch.size() >= batchSize || (due && !batch.isEmpty())) {
+                ship(batch);
+                batch.clear();
+                lastFlush = now;
+            } else if (drained == 0) {
+                if (spill != null && !spill.isEmpty() && running) {
+                    replaySpill();
+                }
+                if (spill != null) {
+                    // 间隔刷盘只在 append 时检查，空闲时补上
+                    spill.fsyncIfDue();
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        if (!batch.isEmpty()) {
+            ship(batch);
+        }
+    }
+
+    private byte[] encode(ILoggingEvent event) {
+        return encoder.encode(event);
+    }
+
+    private void ship(List<byte[]> batch) {
+        if (spill != null && !spill.isEmpty()) {
+            // 磁盘上还有没重放完的日志，新日志排在后面
+            spillAll(batch);
+            replaySpill();
+            return;
+        }
+        try {
+            send(batch);
+        } catch (IOException | RuntimeException e) {
+            failedBatches.increment();
+            if (spill != null) {
+                addWarn("发送日志失败，写入溢出目录 " + batch.size() + " 条：" + e.getMessage());
+                spillAll(batch);
+                nextAttemptAt = System.currentTimeMillis() + reconnectDelayMillis;
+                return;
+            }
+            dropped.add(batch.size());
+            addWarn("发送日志失败，丢弃 " + batch.size() + " 条：" + e.getMessage());
+            if (running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(reconnectDelayMillis));
+            }
+        }
+    }
+
+    private void send(List<byte[]> batch) throws IOException {
+        long start = System.nanoTime();
+        shipper.send(batch);
+        long elapsed = System.nanoTime() - start;
+        sent.add(batch.size());
+        sendCount.increment();
+        totalSendNanos.add(elapsed);
+        lastSendNanos = elapsed;
+        maxSendNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private void spillAll(List<byte[]> batch) {
+        for (byte[] event : batch) {
+            try {
+                if (spill.append(event)) {
+                    spilled.increment();
+                } else {
+                    dropped.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                dropped.increment();
+            }
+        }
+    }
+
+    /**
+     * 按顺序重放磁盘上的日志，失败则等 reconnectDelayMillis 后再试
+     */
+    private void replaySpill() {
+        if (System.currentTimeMillis() < nextAttemptAt) {
+            return;
+        }
+        for (int i = 0; i < spillReplayBatches; i++) {
+            DiskSpillQueue.Batch pending = spill.read(batchSize);
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                send(pending.getRecords());
+                spill.commit(pending);
+            } catch (IOException | RuntimeException e) {
+                failedBatches.increment();
+                nextAttemptAt = System.currentTimeMillis() + reconnectDelayMillis;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 缓冲区中等待发送的日志数
+     */
+    public int getQueueDepth() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * @return 累计写入溢出目录的日志数
+     */
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    /**
+     * @return 溢出目录中还未重放的字节数
+     */
+    public long getSpillBacklogBytes() {
+        return spill == null ? 0 : spill.getBacklogBytes();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    public long getLastSendLatencyNanos() {
+        return lastSendNanos;
+    }
+
+    public long getMaxSendLatencyNanos() {
+        return maxSendNanos.get();
+    }
+
+    public double getAvgSendLatencyNanos() {
+        long count = sendCount.sum();
+        return count == 0 ? 0 : (double) totalSendNanos.sum() / count;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public void setAppName(String appName) {
+        this.appName = appName;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public void setReconnectDelayMillis(long reconnectDelayMillis) {
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public void setDropPolicy(DropPolicy dropPolicy) {
+        this.dropPolicy = dropPolicy;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    /**
+     * 溢出目录，不配置则发送失败时直接丢弃
+     */
+    public void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public void setSpillSegmentSize(int spillSegmentSize) {
+        this.spillSegmentSize = spillSegmentSize;
+    }
+
+    public void setSpillMaxBytes(long spillMaxBytes) {
+        this.spillMaxBytes = spillMaxBytes;
+    }
+
+    public void setSpillFsyncPolicy(DiskSpillQueue.FsyncPolicy spillFsyncPolicy) {
+        this.spillFsyncPolicy = spillFsyncPolicy;
+    }
+
+    public void setSpillFsyncIntervalMillis(long spillFsyncIntervalMillis) {
+        this.spillFsyncIntervalMillis = spillFsyncIntervalMillis;
+    }
+
+    public void setSpillReplayBatches(int spillReplayBatches) {
+        this.spillReplayBatches = spillReplayBatches;
+    }
+
+    public void setMaxFlushTimeMillis(long maxFlushTimeMillis) {
+        this.maxFlushTimeMillis = maxFlushTimeMillis;
+    }
+
+    /**
+     * 替换默认的 TCP 发送方式
+     */
+    public void setShipper(LogShipper shipper) {
+        this.shipper = shipper;
+    }
+}
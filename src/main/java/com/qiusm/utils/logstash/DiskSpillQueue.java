@@ -0,0 +1,336 @@
+package com.qiusm.utils.logstash;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 本地磁盘溢出队列，logstash/ES 不可用时先把日志落盘，恢复后按顺序重放 <br>
+ * 1. 按固定大小分段，每段一个文件（{@code %020d.seg}），内存映射后顺序追加，写满换下一段 <br>
+ * 2. 记录格式：int 长度 + 内容；长度 0 表示后面还没写，-1 表示该段已写完 <br>
+ * 3. 读取位置保存在 {@code consumer.pos}，只有 {@link #commit(Batch)} 之后才前移，发送失败下次会重读同一批 <br>
+ * 4. 已消费完的段会删除；总大小超过 maxTotalBytes 时拒绝写入，由调用方计入丢弃 <br>
+ * 5. 数据在映射内存和页缓存中，不占堆；落盘时机由 {@link FsyncPolicy} 决定，
+ * {@link FsyncPolicy#INTERVAL} 下写入停止后由调用方空闲时调用 {@link #fsyncIfDue()} 补刷 <br>
+ * 6. 非线程安全方法都加了 synchronized，正常只有 appender 的后台线程在用 <br>
+ *
+ * @author qiushengming
+ */
+public class DiskSpillQueue implements Closeable {
+
+    public enum FsyncPolicy {
+        /**
+         * 交给操作系统刷盘，进程崩溃不丢，机器掉电可能丢最近的数据
+         */
+        NONE,
+        /**
+         * 每次 append 之后 force
+         */
+        EVERY_APPEND,
+        /**
+         * 距离上次 force 超过 fsyncIntervalMillis 时 force，append 时和 {@link #fsyncIfDue()} 时检查
+         */
+        INTERVAL,
+    }
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String POSITION_FILE = "consumer.pos";
+    private static final int END_OF_SEGMENT = -1;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long maxTotalBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+
+    /**
+     * 段 id -> 映射内存，按 id 排序
+     */
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private MappedByteBuffer positionBuffer;
+
+    private long writeSegment;
+    private int writeOffset;
+
+    private long readSegment;
+    private int readOffset;
+
+    private long lastFsync = System.currentTimeMillis();
+    private boolean dirty;
+
+    /**
+     * @param directory           存放段文件的目录
+     * @param segmentSize         每段字节数
+     * @param maxTotalBytes       所有段的总字节数上限
+     * @param fsyncPolicy         刷盘策略
+     * @param fsyncIntervalMillis {@link FsyncPolicy#INTERVAL} 的刷盘间隔
+     */
+    public DiskSpillQueue(File directory, int segmentSize, long maxTotalBytes,
+                          FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize 不能小于 1024");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录：" + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxTotalBytes = Math.max(maxTotalBytes, segmentSize);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        recover();
+    }
+
+    /**
+     * 重启后恢复：映射已有的段，定位写入位置，读取消费位置
+     */
+    private void recover() throws IOException {
+        positionBuffer = map(new File(directory, POSITION_FILE), 16);
+        readSegment = positionBuffer.getLong(0);
+        readOffset = positionBuffer.getInt(8);
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                long id = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                if (id < readSegment) {
+                    deleteQuietly(file);
+                } else {
+                    segments.put(id, map(file, segmentSize));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            writeSegment = readSegment;
+            writeOffset = 0;
+            segments.put(writeSegment, map(segmentFile(writeSegment), segmentSize));
+            readOffset = 0;
+            return;
+        }
+        if (readSegment < segments.firstKey()) {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+        }
+        writeSegment = segments.lastKey();
+        MappedByteBuffer last = segments.get(writeSegment);
+        int offset = 0;
+        while (offset + 4 <= segmentSize) {
+            int length = last.getInt(offset);
+            if (length <= 0 || offset + 4 + length > segmentSize) {
+                break;
+            }
+            offset += 4 + length;
+        }
+        writeOffset = offset;
+        if (readSegment == writeSegment && readOffset > writeOffset) {
+            readOffset = writeOffset;
+        }
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @return 超出容量上限时返回 false
+     */
+    public synchronized boolean append(byte[] record) throws IOException {
+        if (record.length == 0 || record.length + 8 > segmentSize) {
+            throw new IllegalArgumentException("记录长度超出范围：" + record.length);
+        }
+        if (writeOffset + 4 + record.length + 4 > segmentSize) {
+            if ((long) (segments.size() + 1) * segmentSize > maxTotalBytes) {
+                return false;
+            }
+            MappedByteBuffer current = segments.get(writeSegment);
+            current.putInt(writeOffset, END_OF_SEGMENT);
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                current.force();
+            }
+            writeSegment++;
+            writeOffset = 0;
+            segments.put(writeSegment, map(segmentFile(writeSegment), segmentSize));
+        }
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        // 先写内容再写长度，长度非 0 即代表记录完整
+        ByteBuffer target = buffer.duplicate();
+        target.position(writeOffset + 4);
+        target.put(record);
+        buffer.putInt(writeOffset, record.length);
+        writeOffset += 4 + record.length;
+        dirty = true;
+        maybeFsync(buffer);
+        return true;
+    }
+
+    /**
+     * 从消费位置开始读取最多 maxRecords 条，不移动消费位置
+     */
+    public synchronized Batch read(int maxRecords) {
+        List<byte[]> records = new ArrayList<>();
+        long segment = readSegment;
+        int offset = readOffset;
+        while (records.size() < maxRecords) {
+            MappedByteBuffer buffer = segments.get(segment);
+            if (buffer == null) {
+                break;
+            }
+            int length = offset + 4 <= segmentSize ? buffer.getInt(offset) : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT) {
+                if (segment >= writeSegment) {
+                    break;
+                }
+                segment++;
+                offset = 0;
+                continue;
+            }
+            if (length == 0) {
+                break;
+            }
+            byte[] record = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(offset + 4);
+            source.get(record);
+            records.add(record);
+            offset += 4 + length;
+        }
+        return new Batch(records, segment, offset);
+    }
+
+    /**
+     * 批次已经成功发送，消费位置前移到批次末尾，删除已经消费完的段
+     */
+    public synchronized void commit(Batch batch) throws IOException {
+        readSegment = batch.endSegment;
+        readOffset = batch.endOffset;
+        positionBuffer.putLong(0, readSegment);
+        positionBuffer.putInt(8, readOffset);
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            positionBuffer.force();
+        }
+        Map<Long, MappedByteBuffer> consumed = segments.headMap(readSegment);
+        for (Long id : new ArrayList<>(consumed.keySet())) {
+            segments.remove(id);
+            deleteQuietly(segmentFile(id));
+        }
+        if (isEmpty() && writeOffset > 0) {
+            // 全部消费完后从新段开始写，旧段可以删除
+            readSegment = ++writeSegment;
+            readOffset = 0;
+            writeOffset = 0;
+            segments.put(writeSegment, map(segmentFile(writeSegment), segmentSize));
+            commit(new Batch(new ArrayList<>(), readSegment, 0));
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readOffset == writeOffset;
+    }
+
+    /**
+     * @return 已占用的磁盘空间（按段计）
+     */
+    public synchronized long getDiskBytes() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    /**
+     * @return 未消费的数据量（近似，按段内偏移计算）
+     */
+    public synchronized long getBacklogBytes() {
+        return (writeSegment - readSegment) * segmentSize + writeOffset - readOffset;
+    }
+
+    /**
+     * {@link FsyncPolicy#INTERVAL} 下有未刷盘的写入且间隔已到时 force <br>
+     * 只在 append 里检查的话，最后一批写入之后没有新日志就一直不会落盘
+     *
+     * @return 是否执行了 force
+     */
+    public synchronized boolean fsyncIfDue() {
+        if (!dirty || fsyncPolicy != FsyncPolicy.INTERVAL || !intervalElapsed()) {
+            return false;
+        }
+        force(segments.get(writeSegment));
+        return true;
+    }
+
+    synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    private void maybeFsync(MappedByteBuffer buffer) {
+        if (fsyncPolicy == FsyncPolicy.EVERY_APPEND || (fsyncPolicy == FsyncPolicy.INTERVAL && intervalElapsed())) {
+            force(buffer);
+        }
+    }
+
+    private boolean intervalElapsed() {
+        return System.currentTimeMillis() - lastFsync >= fsyncIntervalMillis;
+    }
+
+    private void force(MappedByteBuffer buffer) {
+        buffer.force();
+        lastFsync = System.currentTimeMillis();
+        dirty = false;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (dirty && fsyncPolicy != FsyncPolicy.NONE) {
+            segments.get(writeSegment).force();
+        }
+        segments.clear();
+        positionBuffer = null;
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * 映射要等 GC 才会释放，Windows 上文件可能暂时删不掉，下次启动时会再删
+     */
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * 一次读取的结果，记录了读到的末尾位置
+     */
+    public static class Batch {
+        private final List<byte[]> records;
+        private final long endSegment;
+        private final int endOffset;
+
+        Batch(List<byte[]> records, long endSegment, int endOffset) {
+            this.records = records;
+            this.endSegment = endSegment;
+            this.endOffset = endOffset;
+        }
+
+        public List<byte[]> getRecords() {
+            return records;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+}
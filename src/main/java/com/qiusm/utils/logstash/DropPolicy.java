@@ -0,0 +1,21 @@
+package com.qiusm.utils.logstash;
+
+/**
+ * 缓冲区满时的处理方式
+ *
+ * @author qiushengming
+ */
+public enum DropPolicy {
+    /**
+     * 丢弃当前这条日志，记录日志的线程不受任何影响
+     */
+    DROP_NEWEST,
+    /**
+     * 丢弃最早的一条，为当前日志腾出位置
+     */
+    DROP_OLDEST,
+    /**
+     * 等待缓冲区有空位，最多等待 blockTimeoutMillis，超时后丢弃当前日志
+     */
+    BLOCK,
+}
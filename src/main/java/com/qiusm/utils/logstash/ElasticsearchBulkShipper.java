@@ -0,0 +1,355 @@
+package com.qiusm.utils.logstash;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 不经过 logstash，直接用 ES 的 _bulk 接口写入 <br>
+ * 1. 索引名与 logstash 配置一致：{@code luyun-%{+YYYY.MM.dd}}，日期取每条日志自己的 {@code @timestamp} 换算成 UTC，
+ * 从磁盘补发的隔天日志仍写入当天的索引；mapping 仍由 luyun-template 管理 <br>
+ * 2. 一批日志按 maxActions 条、maxBytes 字节（压缩前）拆成多个 _bulk 请求，请求体为 NDJSON，默认 gzip 压缩 <br>
+ * 3. 整个请求返回 429 时按指数退避重试；返回 200 但部分条目 429 时只重试这些条目 <br>
+ * 4. 条目因为 mapping 等原因被拒（非 429）时不重试，计入 {@link #getRejectedCount()} <br>
+ * 5. 重试次数用完仍失败则抛出 IOException，由 appender 落盘或丢弃；此时已写入的条目可能会被重复写入 <br>
+ *
+ * <pre>
+ * &lt;appender name="ES" class="com.qiusm.utils.logstash.AsyncBatchLogstashAppender"&gt;
+ *     &lt;appName&gt;utils&lt;/appName&gt;
+ *     &lt;shipper class="com.qiusm.utils.logstash.ElasticsearchBulkShipper"&gt;
+ *         &lt;url&gt;http://localhost:9200&lt;/url&gt;
+ *         &lt;indexPrefix&gt;luyun-&lt;/indexPrefix&gt;
+ *     &lt;/shipper&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public class ElasticsearchBulkShipper implements LogShipper {
+
+    private static final DateTimeFormatter INDEX_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * {@link LogEventJsonEncoder} 把 @timestamp 放在第一个字段，按前缀直接截取，不用解析整条 JSON
+     */
+    private static final byte[] TIMESTAMP_PREFIX = "{\"@timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final String TIMESTAMP = "@timestamp";
+
+    /**
+     * 只取需要的字段，减小响应体
+     */
+    private static final String BULK_PATH = "/_bulk?filter_path=errors,items.*.status,items.*.error.type";
+
+    private String url = "http://localhost:9200";
+    private String indexPrefix = "luyun-";
+    private int maxActions = 1000;
+    private int maxBytes = 5 * 1024 * 1024;
+    private boolean compress = true;
+    private int maxRetries = 3;
+    private long retryBackoffMillis = 200;
+    private int connectTimeoutMillis = 3000;
+    private int readTimeoutMillis = 10000;
+    private String username;
+    private String password;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public ElasticsearchBulkShipper() {
+    }
+
+    public ElasticsearchBulkShipper(String url) {
+        this.url = url;
+    }
+
+    @Override
+    public void send(List<byte[]> events) throws IOException {
+        // 一批里通常只有一两个日期，action 行按索引复用
+        Map<String, byte[]> actions = new HashMap<>(4);
+        List<Action> chunk = new ArrayList<>();
+        int chunkBytes = 0;
+        for (byte[] event : events) {
+            byte[] action = actions.computeIfAbsent(indexName(event), ElasticsearchBulkShipper::indexAction);
+            int size = action.length + event.length + 2;
+            if (!chunk.isEmpty() && (chunk.size() >= maxActions || chunkBytes + size > maxBytes)) {
+                bulkWithRetry(chunk);
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            chunk.add(new Action(action, event));
+            chunkBytes += size;
+        }
+        if (!chunk.isEmpty()) {
+            bulkWithRetry(chunk);
+        }
+    }
+
+    private void bulkWithRetry(List<Action> events) throws IOException {
+        List<Action> pending = events;
+        for (int attempt = 0; ; attempt++) {
+            pending = bulk(pending);
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (attempt >= maxRetries) {
+                throw new IOException("ES 持续返回 429，剩余 " + pending.size() + " 条未写入");
+            }
+            retried.add(pending.size());
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * 发送一次 _bulk 请求
+     *
+     * @return 需要重试的条目（429），全部成功或不可重试时为空
+     */
+    private List<Action> bulk(List<Action> events) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + BULK_PATH).openConnection();
+        try {
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-ndjson");
+            if (compress) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
+            if (username != null) {
+                String token = username + ":" + (password == null ? "" : password);
+                connection.setRequestProperty("Authorization",
+                        "Basic " + Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+            }
+            try (OutputStream out = compress
+                    ? new GZIPOutputStream(connection.getOutputStream(), 8192)
+                    : connection.getOutputStream()) {
+                for (Action event : events) {
+                    out.write(event.action);
+                    out.write('\n');
+                    out.write(event.source);
+                    out.write('\n');
+                }
+            }
+
+            int status = connection.getResponseCode();
+            if (status == TOO_MANY_REQUESTS) {
+                drain(connection.getErrorStream());
+                return events;
+            }
+            if (status / 100 != 2) {
+                throw new IOException("ES _bulk 返回 " + status + "：" + readString(connection.getErrorStream()));
+            }
+            JSONObject response = JSON.parseObject(readString(connection.getInputStream()));
+            if (response == null || !response.getBooleanValue("errors")) {
+                return new ArrayList<>();
+            }
+            return retryable(response.getJSONArray("items"), events);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * items 与请求中的条目一一对应，挑出 429 的条目
+     */
+    private List<Action> retryable(JSONArray items, List<Action> events) {
+        List<Action> retry = new ArrayList<>();
+        if (items == null) {
+            return retry;
+        }
+        for (int i = 0; i < items.size() && i < events.size(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            JSONObject result = item.getJSONObject(item.keySet().iterator().next());
+            int status = result.getIntValue("status");
+            if (status == TOO_MANY_REQUESTS) {
+                retry.add(events.get(i));
+            } else if (status / 100 != 2) {
+                rejected.increment();
+            }
+        }
+        return retry;
+    }
+
+    /**
+     * 按日志自己的 @timestamp 取 UTC 日期；取不到时退回发送时的日期
+     */
+    private String indexName(byte[] event) {
+        LocalDate date = null;
+        String timestamp = timestamp(event);
+        if (timestamp != null) {
+            try {
+                date = OffsetDateTime.parse(timestamp).withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+            } catch (DateTimeParseException e) {
+                // 格式不对按发送时间
+            }
+        }
+        if (date == null) {
+            date = LocalDate.now(ZoneOffset.UTC);
+        }
+        return indexPrefix + date.format(INDEX_DATE_FORMAT);
+    }
+
+    private static String timestamp(byte[] event) {
+        if (startsWith(event, TIMESTAMP_PREFIX)) {
+            for (int i = TIMESTAMP_PREFIX.length; i < event.length; i++) {
+                if (event[i] == '"') {
+                    return new String(event, TIMESTAMP_PREFIX.length, i - TIMESTAMP_PREFIX.length,
+                            StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+        // 不是 LogEventJsonEncoder 编码的，或者字段顺序不同
+        try {
+            JSONObject json = JSON.parseObject(new String(event, StandardCharsets.UTF_8));
+            return json == null ? null : json.getString(TIMESTAMP);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] indexAction(String index) {
+        return ("{\"index\":{\"_index\":\"" + index + "\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 一条日志和它的 action 行
+     */
+    private static final class Action {
+
+        private final byte[] action;
+        private final byte[] source;
+
+        Action(byte[] action, byte[] source) {
+            this.action = action;
+            this.source = source;
+        }
+    }
+
+    private void backoff(int attempt) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(retryBackoffMillis << Math.min(attempt, 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("重试等待被中断", e);
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = input.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        readString(in);
+    }
+
+    @Override
+    public void close() {
+        // HttpURLConnection 的连接由 JDK keep-alive 缓存管理，这里无需处理
+    }
+
+    /**
+     * @return 被 ES 拒绝且不重试的条目数（mapping 错误等）
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return 因 429 重试的条目数
+     */
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setIndexPrefix(String indexPrefix) {
+        this.indexPrefix = indexPrefix;
+    }
+
+    public void setMaxActions(int maxActions) {
+        this.maxActions = maxActions;
+    }
+
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public void setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
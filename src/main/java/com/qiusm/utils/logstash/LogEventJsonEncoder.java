@@ -0,0 +1,76 @@
+package com.qiusm.utils.logstash;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * 把日志事件编码成一行 JSON，字段与 es-tempate-CRUD.http 中 luyun-template 的 mapping 对应 <br>
+ * {@code @timestamp, @version, app_name, pid, ip, level, line, thread, class, msg, stack_trace, traceId}
+ *
+ * @author qiushengming
+ */
+public class LogEventJsonEncoder {
+
+    static final String TRACE_ID = "traceId";
+
+    private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    private final String appName;
+
+    private final String pid;
+
+    private final String ip;
+
+    public LogEventJsonEncoder(String appName) {
+        this.appName = appName;
+        String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+        this.pid = runtimeName.contains("@") ? runtimeName.substring(0, runtimeName.indexOf('@')) : runtimeName;
+        this.ip = localIp();
+    }
+
+    public byte[] encode(ILoggingEvent event) {
+        JSONObject json = new JSONObject(16, true);
+        json.put("@timestamp", TIMESTAMP_FORMAT.format(event.getTimeStamp()));
+        json.put("@version", "1");
+        json.put("app_name", appName);
+        json.put("pid", pid);
+        json.put("ip", ip);
+        json.put("level", event.getLevel().toString());
+        StackTraceElement[] callerData = event.hasCallerData() ? event.getCallerData() : null;
+        if (callerData != null && callerData.length > 0) {
+            json.put("line", String.valueOf(callerData[0].getLineNumber()));
+        }
+        json.put("thread", event.getThreadName());
+        json.put("class", event.getLoggerName());
+        json.put("msg", event.getFormattedMessage());
+        IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (throwableProxy != null) {
+            json.put("stack_trace", ThrowableProxyUtil.asString(throwableProxy));
+        }
+        String traceId = event.getMDCPropertyMap().get(TRACE_ID);
+        if (traceId != null) {
+            json.put(TRACE_ID, traceId);
+        }
+        return JSON.toJSONBytes(json);
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    private static String localIp() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.qiusm.utils.logstash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 把编码好的日志批量发送出去
+ *
+ * @author qiushengming
+ */
+public interface LogShipper extends Closeable {
+
+    /**
+     * 发送一批日志，抛出异常表示整批都没有送达
+     *
+     * @param events 每个元素是一条 JSON 编码后的日志，不含换行
+     */
+    void send(List<byte[]> events) throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,285 @@
+package com.qiusm.utils.logstash;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 按调用点采样 / 限流的 turbo filter，防止循环里的日志冲垮 logstash <br>
+ * 1. 调用点 = logger 名称 + 格式串（未格式化的 {@code "测试日志输出：{}"}），计数放在两层 {@link ConcurrentHashMap} 里，
+ * 查找不加锁、不分配对象 <br>
+ * 2. 每个调用点每 windowMillis 内前 threshold 条放行；超出后每 sampleRate 条放行一条，sampleRate 为 0 时全部拒绝 <br>
+ * 3. turbo filter 在创建 LoggingEvent 之前执行，被拒绝的日志不会格式化参数、不会取调用者信息 <br>
+ * 4. 带异常的 ERROR 一律放行；高于 level 的日志不参与采样；本来就不会输出的日志（低于 logger 级别）不计数 <br>
+ * 5. 后台线程每 summaryIntervalMillis 为有抑制的调用点在原 logger、原级别输出一条汇总，带 {@link #SUMMARY} marker <br>
+ * 6. 调用点超过 maxSites 后新的调用点不再采样（直接放行），长时间没有日志的调用点会被清理 <br>
+ *
+ * <pre>
+ * &lt;turboFilter class="com.qiusm.utils.logstash.SamplingTurboFilter"&gt;
+ *     &lt;level&gt;INFO&lt;/level&gt;
+ *     &lt;windowMillis&gt;1000&lt;/windowMillis&gt;
+ *     &lt;threshold&gt;100&lt;/threshold&gt;
+ *     &lt;sampleRate&gt;100&lt;/sampleRate&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    /**
+     * 汇总日志的 marker，本过滤器直接放行
+     */
+    public static final Marker SUMMARY = MarkerFactory.getMarker("LOG_SAMPLING_SUMMARY");
+
+    private static final String FQCN = SamplingTurboFilter.class.getName();
+
+    /**
+     * 参与采样的最高级别，高于它的日志直接放行
+     */
+    private Level level = Level.INFO;
+
+    /**
+     * 限流窗口的长度
+     */
+    private long windowMillis = 1000;
+
+    /**
+     * 每个窗口内每个调用点直接放行的条数
+     */
+    private int threshold = 100;
+
+    /**
+     * 超过 threshold 之后每多少条放行一条，0 表示全部拒绝
+     */
+    private int sampleRate;
+
+    /**
+     * 输出抑制汇总的间隔
+     */
+    private long summaryIntervalMillis = 10000;
+
+    /**
+     * 最多跟踪的调用点个数
+     */
+    private int maxSites = 10000;
+
+    /**
+     * 当前时间（毫秒），测试里替换成可控的时钟
+     */
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * logger 名称 -> 格式串 -> 调用点
+     */
+    private final Map<String, Map<String, Site>> sites = new ConcurrentHashMap<>();
+
+    private final AtomicInteger siteCount = new AtomicInteger();
+
+    private final LongAdder suppressed = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (windowMillis <= 0 || threshold < 0 || sampleRate < 0 || summaryIntervalMillis <= 0) {
+            addError("windowMillis、summaryIntervalMillis 必须大于 0，threshold、sampleRate 不能小于 0");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-sampling-" + getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, summaryIntervalMillis, summaryIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+                              Object[] params, Throwable t) {
+        if (!isStarted() || format == null || marker == SUMMARY) {
+            return FilterReply.NEUTRAL;
+        }
+        if (level.toInt() > this.level.toInt() || (level == Level.ERROR && hasThrowable(params, t))) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            // 交给 logger 按级别拒绝，不计数
+            return FilterReply.NEUTRAL;
+        }
+        Site site = site(logger, level, format);
+        if (site == null || site.tryAcquire(clock.getAsLong())) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressed.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * {@code log.error("{}", e.getMessage(), e)} 这种写法到这里时异常还在参数数组的最后一个，t 为 null
+     */
+    private static boolean hasThrowable(Object[] params, Throwable t) {
+        return t != null || (params != null && params.length > 0 && params[params.length - 1] instanceof Throwable);
+    }
+
+    /**
+     * 输出各调用点的抑制汇总，清理空闲的调用点；后台线程定时调用
+     */
+    void flush() {
+        long now = clock.getAsLong();
+        long idleMillis = Math.max(windowMillis, summaryIntervalMillis) * 10;
+        for (Map<String, Site> byFormat : sites.values()) {
+            for (Map.Entry<String, Site> entry : byFormat.entrySet()) {
+                Site site = entry.getValue();
+                long count = site.suppressed.getAndSet(0);
+                if (count > 0) {
+                    site.logger.log(SUMMARY, FQCN, Level.toLocationAwareLoggerInteger(site.level),
+                            "过去 {} 毫秒抑制了 {} 条日志：{}",
+                            new Object[]{now - site.lastSummary, count, entry.getKey()}, null);
+                    site.lastSummary = now;
+                } else if (now - site.windowStart.get() > idleMillis && byFormat.remove(entry.getKey(), site)) {
+                    siteCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 启动以来拒绝的日志条数
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    /**
+     * @return 当前跟踪的调用点个数
+     */
+    public int getSiteCount() {
+        return siteCount.get();
+    }
+
+    private Site site(Logger logger, Level level, String format) {
+        Map<String, Site> byFormat = sites.get(logger.getName());
+        if (byFormat == null) {
+            byFormat = sites.computeIfAbsent(logger.getName(), k -> new ConcurrentHashMap<>());
+        }
+        Site site = byFormat.get(format);
+        if (site != null) {
+            return site;
+        }
+        if (siteCount.incrementAndGet() > maxSites) {
+            siteCount.decrementAndGet();
+            return null;
+        }
+        Site created = new Site(logger, level, clock.getAsLong());
+        site = byFormat.putIfAbsent(format, created);
+        if (site != null) {
+            siteCount.decrementAndGet();
+            return site;
+        }
+        return created;
+    }
+
+    /**
+     * 单个调用点的窗口计数；窗口切换时有并发也只是多放行或少放行几条
+     */
+    private final class Site {
+
+        private final Logger logger;
+
+        private final Level level;
+
+        /**
+         * 当前窗口的开始时间
+         */
+        private final AtomicLong windowStart;
+
+        /**
+         * 当前窗口内的日志条数
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * 上次汇总以来拒绝的条数
+         */
+        private final AtomicLong suppressed = new AtomicLong();
+
+        private volatile long lastSummary;
+
+        Site(Logger logger, Level level, long now) {
+            this.logger = logger;
+            this.level = level;
+            this.windowStart = new AtomicLong(now);
+            this.lastSummary = now;
+        }
+
+        boolean tryAcquire(long now) {
+            long start = windowStart.get();
+            if (now - start >= windowMillis && windowStart.compareAndSet(start, now)) {
+                count.set(0);
+            }
+            int n = count.incrementAndGet();
+            if (n <= threshold || (sampleRate > 0 && (n - threshold) % sampleRate == 0)) {
+                return true;
+            }
+            suppressed.incrementAndGet();
+            return false;
+        }
+    }
+
+    public void setLevel(String level) {
+        this.level = Level.toLevel(level, Level.INFO);
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void setSummaryIntervalMillis(long summaryIntervalMillis) {
+        this.summaryIntervalMillis = summaryIntervalMillis;
+    }
+
+    public void setMaxSites(int maxSites) {
+        this.maxSites = maxSites;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+}
@@ -0,0 +1,79 @@
+package com.qiusm.utils.logstash;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * 通过 TCP 发送到 logstash，每条日志一行（对应 logstash tcp input 的 json_lines codec） <br>
+ * 连接断开后下一次 send 时重连；这里处在日志链路上，自身不再打日志
+ *
+ * @author qiushengming
+ */
+public class TcpLogShipper implements LogShipper {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String host;
+
+    private final int port;
+
+    private final int connectTimeoutMillis;
+
+    private Socket socket;
+
+    private OutputStream out;
+
+    public TcpLogShipper(String host, int port, int connectTimeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    @Override
+    public void send(List<byte[]> events) throws IOException {
+        if (out == null) {
+            connect();
+        }
+        try {
+            for (byte[] event : events) {
+                out.write(event);
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.setTcpNoDelay(true);
+            s.setKeepAlive(true);
+            s.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        socket = s;
+        out = new BufferedOutputStream(s.getOutputStream(), BUFFER_SIZE);
+    }
+
+    @Override
+    public void close() {
+        out = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 连接已不可用，忽略
+            }
+            socket = null;
+        }
+    }
+}
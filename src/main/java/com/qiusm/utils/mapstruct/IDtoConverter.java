@@ -6,6 +6,9 @@ import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import org.mapstruct.factory.Mappers;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * @author qiushengming
  */
@@ -19,4 +22,14 @@ public interface IDtoConverter {
     })
     Dto toDto(Domain domain);
 
+    /**
+     * 批量转换，生成的实现按 domains.size() 预分配 ArrayList，每个元素复用 {@link #toDto(Domain)}
+     */
+    List<Dto> toDtoList(List<Domain> domains);
+
+    /**
+     * 流式转换，不会一次性物化整个集合
+     */
+    Stream<Dto> toDtoStream(Stream<Domain> domains);
+
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.qiusm.utils.metrics;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 指标的实际实现，由 {@link UtilsMetrics#install(MetricsBackend)} 安装 <br>
+ * 每个指标只在第一次使用（或者切换实现）时调用一次 counter/timer，之后直接调用返回的 LongConsumer
+ *
+ * @author qiushengming
+ */
+public interface MetricsBackend {
+
+    /**
+     * 什么都不做，没有 Micrometer 时的默认实现
+     */
+    MetricsBackend NOOP = new MetricsBackend() {
+        @Override
+        public LongConsumer counter(String name, String description, String... tags) {
+            return NOOP_CONSUMER;
+        }
+
+        @Override
+        public LongConsumer timer(String name, String description, String... tags) {
+            return NOOP_CONSUMER;
+        }
+    };
+
+    LongConsumer NOOP_CONSUMER = value -> {
+    };
+
+    /**
+     * @param name        指标名
+     * @param description 描述
+     * @param tags        key1, value1, key2, value2 ...
+     * @return 接收增量
+     */
+    LongConsumer counter(String name, String description, String... tags);
+
+    /**
+     * @param name        指标名
+     * @param description 描述
+     * @param tags        key1, value1, key2, value2 ...
+     * @return 接收耗时（纳秒）
+     */
+    LongConsumer timer(String name, String description, String... tags);
+}
@@ -0,0 +1,35 @@
+package com.qiusm.utils.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 基于 Micrometer 的实现，指标通过 actuator 的 /actuator/metrics 查看 <br>
+ * 计数器在监控系统中取 rate 即为 行/秒、ID/秒
+ *
+ * @author qiushengming
+ */
+public class MicrometerMetricsBackend implements MetricsBackend {
+
+    private final MeterRegistry registry;
+
+    public MicrometerMetricsBackend(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public LongConsumer counter(String name, String description, String... tags) {
+        Counter counter = Counter.builder(name).description(description).tags(tags).register(registry);
+        return counter::increment;
+    }
+
+    @Override
+    public LongConsumer timer(String name, String description, String... tags) {
+        Timer timer = Timer.builder(name).description(description).tags(tags).register(registry);
+        return nanos -> timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,133 @@
+package com.qiusm.utils.metrics;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 工具类的埋点入口 <br>
+ * 1. 工具类在静态字段里声明 {@link Counter}、{@link Timer}，热点路径上直接调用，不依赖 Spring <br>
+ * 2. 默认是 {@link MetricsBackend#NOOP}，只多两次 volatile 读；Spring 容器里有 MeterRegistry 时由
+ * {@link UtilsMetricsConfiguration} 安装 {@link MicrometerMetricsBackend} <br>
+ * 3. 切换实现后，各指标在下一次使用时重新绑定 <br>
+ *
+ * <pre>
+ * private static final UtilsMetrics.Counter IDS = UtilsMetrics.counter("utils.snowflake.ids", "生成的 ID 数");
+ * IDS.increment();
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public final class UtilsMetrics {
+
+    private static volatile MetricsBackend backend = MetricsBackend.NOOP;
+
+    /**
+     * 每次 install 加一，指标发现版本变化时重新绑定
+     */
+    private static volatile int generation;
+
+    private UtilsMetrics() {
+    }
+
+    public static synchronized void install(MetricsBackend metricsBackend) {
+        backend = metricsBackend == null ? MetricsBackend.NOOP : metricsBackend;
+        generation++;
+    }
+
+    public static MetricsBackend getBackend() {
+        return backend;
+    }
+
+    public static Counter counter(String name, String description, String... tags) {
+        return new Counter(name, description, tags);
+    }
+
+    public static Timer timer(String name, String description, String... tags) {
+        return new Timer(name, description, tags);
+    }
+
+    /**
+     * 指标句柄，持有按当前实现绑定好的 LongConsumer
+     */
+    private abstract static class Metric {
+        final String name;
+        final String description;
+        final String[] tags;
+        private volatile Binding binding = new Binding(-1, MetricsBackend.NOOP_CONSUMER);
+
+        Metric(String name, String description, String[] tags) {
+            this.name = name;
+            this.description = description;
+            this.tags = tags;
+        }
+
+        final LongConsumer target() {
+            Binding current = binding;
+            int gen = generation;
+            if (current.generation != gen) {
+                current = new Binding(gen, bind(backend));
+                binding = current;
+            }
+            return current.consumer;
+        }
+
+        abstract LongConsumer bind(MetricsBackend metricsBackend);
+    }
+
+    private static final class Binding {
+        final int generation;
+        final LongConsumer consumer;
+
+        Binding(int generation, LongConsumer consumer) {
+            this.generation = generation;
+            this.consumer = consumer;
+        }
+    }
+
+    public static final class Counter extends Metric {
+
+        Counter(String name, String description, String[] tags) {
+            super(name, description, tags);
+        }
+
+        public void increment() {
+            target().accept(1);
+        }
+
+        public void increment(long amount) {
+            if (amount > 0) {
+                target().accept(amount);
+            }
+        }
+
+        @Override
+        LongConsumer bind(MetricsBackend metricsBackend) {
+            return metricsBackend.counter(name, description, tags);
+        }
+    }
+
+    public static final class Timer extends Metric {
+
+        Timer(String name, String description, String[] tags) {
+            super(name, description, tags);
+        }
+
+        /**
+         * @param nanos 耗时（纳秒）
+         */
+        public void record(long nanos) {
+            target().accept(nanos);
+        }
+
+        /**
+         * @param startNanos 开始时的 {@link System#nanoTime()}
+         */
+        public void recordSince(long startNanos) {
+            target().accept(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        LongConsumer bind(MetricsBackend metricsBackend) {
+            return metricsBackend.timer(name, description, tags);
+        }
+    }
+}
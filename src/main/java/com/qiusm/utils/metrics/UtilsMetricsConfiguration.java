@@ -0,0 +1,32 @@
+package com.qiusm.utils.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * classpath 上有 Micrometer 且容器里有 MeterRegistry 时，把工具类的埋点接到 Micrometer <br>
+ * 容器关闭时恢复成 {@link MetricsBackend#NOOP}
+ *
+ * @author qiushengming
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+public class UtilsMetricsConfiguration implements DisposableBean {
+
+    public UtilsMetricsConfiguration(ObjectProvider<MeterRegistry> registryProvider) {
+        registryProvider.ifAvailable(registry -> {
+            UtilsMetrics.install(new MicrometerMetricsBackend(registry));
+            log.info("utils 埋点已接入 Micrometer：{}", registry.getClass().getSimpleName());
+        });
+    }
+
+    @Override
+    public void destroy() {
+        UtilsMetrics.install(MetricsBackend.NOOP);
+    }
+}
@@ -0,0 +1,97 @@
+package com.qiusm.utils.selenium;
+
+import cn.hutool.core.thread.ThreadUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.devtools.target.model.SessionID;
+
+import java.io.Closeable;
+import java.util.Map;
+
+/**
+ * {@link ChromeContextPool} 租出的一个隔离上下文，可以直接交给 {@link CrawlScheduler} 使用 <br>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+@Getter
+public class BrowserContextLease implements WebDriverClient, Closeable {
+
+    private final ChromeContextPool pool;
+    private final Integer clientId;
+    private final String browserContextId;
+    private final String targetId;
+    private final SessionID sessionId;
+    private volatile boolean released;
+
+    BrowserContextLease(ChromeContextPool pool, Integer clientId, String browserContextId,
+                        String targetId, SessionID sessionId) {
+        this.pool = pool;
+        this.clientId = clientId;
+        this.browserContextId = browserContextId;
+        this.targetId = targetId;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * 导航到 url，等待 document.readyState 为 complete
+     *
+     * @return 超时或导航出错返回 false
+     */
+    @Override
+    public boolean getUrl(String url) {
+        checkNotReleased();
+        Map<String, Object> navigate = pool.send(sessionId, "Page.navigate", ChromeContextPool.params("url", url));
+        if (navigate.get("errorText") != null) {
+            log.info("失败的请求：url:{}, {}", url, navigate.get("errorText"));
+            return false;
+        }
+        long timeout = 10000;
+        while (!"complete".equals(evaluate("document.readyState"))) {
+            timeout -= 200;
+            ThreadUtil.sleep(200);
+            if (timeout <= 0) {
+                log.info("失败的请求：url:{}", url);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在页面中执行 js 表达式
+     *
+     * @return 表达式的值
+     */
+    @SuppressWarnings("unchecked")
+    public Object evaluate(String expression) {
+        checkNotReleased();
+        Map<String, Object> result = pool.send(sessionId, "Runtime.evaluate",
+                ChromeContextPool.params("expression", expression, "returnByValue", true));
+        Object remote = result.get("result");
+        return remote instanceof Map ? ((Map<String, Object>) remote).get("value") : null;
+    }
+
+    /**
+     * 归还给池，上下文随之销毁
+     */
+    @Override
+    public void quit() {
+        close();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (released) {
+            return;
+        }
+        released = true;
+        pool.release(this);
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("租约已归还：" + clientId);
+        }
+    }
+}
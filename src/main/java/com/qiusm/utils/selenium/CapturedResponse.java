@@ -0,0 +1,27 @@
+package com.qiusm.utils.selenium;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 通过 DevTools 捕获到的 XHR 响应 <br>
+ *
+ * @author qiushengming
+ */
+@Data
+@AllArgsConstructor
+public class CapturedResponse {
+    private String requestId;
+    private String url;
+    private Integer status;
+    private String mimeType;
+    /**
+     * 响应体，{@link #base64Encoded} 为 true 时为 base64 编码后的内容
+     */
+    private String body;
+    private boolean base64Encoded;
+    /**
+     * 捕获时间
+     */
+    private long capturedAt;
+}
@@ -0,0 +1,191 @@
+package com.qiusm.utils.selenium;
+
+import com.qiusm.utils.metrics.UtilsMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.ChromiumDevToolsLocator;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.Connection;
+import org.openqa.selenium.devtools.target.model.SessionID;
+import org.openqa.selenium.json.TypeToken;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.io.Closeable;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个 Chrome 进程上的浏览器上下文池 <br>
+ * 1. 只启动一个 Chrome，每次 {@link #lease} 通过 DevTools 新建一个独立的 BrowserContext 和 target，
+ * cookie、localStorage、缓存等与其它租约互不可见 <br>
+ * 2. 归还时销毁 BrowserContext，下一个租约拿到的是全新的上下文，不需要重启 Chrome <br>
+ * 3. 每个 target 都重新应用 {@link EmulationProfile}（尺寸、UA、触摸） <br>
+ * 4. 页面操作都走浏览器级的 CDP 连接，不经过 WebDriver 的当前窗口，多个租约可以并发 <br>
+ * <p>
+ * DevTools 的类型化 API 在 selenium 各版本间变化较大，这里统一用 {@link Command} 按协议方法名发送
+ *
+ * @author qiushengming
+ */
+@Slf4j
+public class ChromeContextPool implements Closeable {
+
+    static final Duration CDP_TIMEOUT = Duration.ofSeconds(10);
+
+    static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private static final UtilsMetrics.Timer LEASE_WAIT =
+            UtilsMetrics.timer("utils.browser.lease.wait", "等待浏览器上下文租约的耗时", "pool", "context");
+
+    private static final UtilsMetrics.Counter LEASE_TIMEOUTS =
+            UtilsMetrics.counter("utils.browser.lease.timeouts", "等待租约超时次数", "pool", "context");
+
+    private final ChromeDriver driver;
+
+    /**
+     * 浏览器级别的 CDP 连接，不绑定任何 target
+     */
+    private final Connection connection;
+
+    private final Semaphore permits;
+
+    private final EmulationProfile profile;
+
+    private final AtomicInteger leaseSeq = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    public ChromeContextPool(int maxLeases) {
+        this(ChromeWebDriverClient.WEBDRIVER_CHROME_DRIVER, maxLeases, EmulationProfile.iphone());
+    }
+
+    /**
+     * @param webdriver chromedriver 路径
+     * @param maxLeases 同时存在的最大租约数
+     * @param profile   每个 target 应用的设备模拟参数
+     */
+    public ChromeContextPool(String webdriver, int maxLeases, EmulationProfile profile) {
+        System.setProperty("webdriver.chrome.driver", webdriver);
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("-headless");
+        this.driver = new ChromeDriver(options);
+        this.connection = ChromiumDevToolsLocator
+                .getChromeConnector(HttpClient.Factory.createDefault(), driver.getCapabilities(), "goog:chromeOptions")
+                .orElseThrow(() -> {
+                    driver.quit();
+                    return new WebDriverException("无法连接 Chrome DevTools");
+                });
+        this.permits = new Semaphore(maxLeases, true);
+        this.profile = profile;
+    }
+
+    /**
+     * 获取一个隔离的浏览器上下文，用完必须 {@link BrowserContextLease#close()}
+     *
+     * @param timeout 等待空闲租约的时间
+     */
+    public BrowserContextLease lease(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (closed) {
+            throw new IllegalStateException("ChromeContextPool 已关闭");
+        }
+        long waitStart = System.nanoTime();
+        boolean acquired = permits.tryAcquire(timeout, unit);
+        LEASE_WAIT.recordSince(waitStart);
+        if (!acquired) {
+            LEASE_TIMEOUTS.increment();
+            throw new TimeoutException("等待浏览器上下文超时");
+        }
+        String contextId = null;
+        try {
+            contextId = (String) send(null, "Target.createBrowserContext",
+                    params("disposeOnDetach", true)).get("browserContextId");
+            String targetId = (String) send(null, "Target.createTarget",
+                    params("url", "about:blank", "browserContextId", contextId)).get("targetId");
+            SessionID sessionId = new SessionID((String) send(null, "Target.attachToTarget",
+                    params("targetId", targetId, "flatten", true)).get("sessionId"));
+            BrowserContextLease lease = new BrowserContextLease(this, leaseSeq.incrementAndGet(),
+                    contextId, targetId, sessionId);
+            applyProfile(sessionId);
+            return lease;
+        } catch (RuntimeException e) {
+            disposeQuietly(contextId);
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 销毁上下文，cookie 和 storage 随之清空
+     */
+    void release(BrowserContextLease lease) {
+        try {
+            send(null, "Target.closeTarget", params("targetId", lease.getTargetId()));
+        } catch (RuntimeException e) {
+            log.debug("关闭 target 失败：{}", e.getMessage());
+        } finally {
+            disposeQuietly(lease.getBrowserContextId());
+            permits.release();
+        }
+    }
+
+    private void applyProfile(SessionID sessionId) {
+        send(sessionId, "Emulation.setDeviceMetricsOverride", params(
+                "width", profile.getWidth(),
+                "height", profile.getHeight(),
+                "deviceScaleFactor", profile.getDeviceScaleFactor(),
+                "mobile", profile.isMobile()));
+        send(sessionId, "Emulation.setUserAgentOverride", params("userAgent", profile.getUserAgent()));
+        send(sessionId, "Emulation.setTouchEmulationEnabled", params("enabled", profile.isMobile()));
+        send(sessionId, "Page.enable", params());
+    }
+
+    private void disposeQuietly(String contextId) {
+        if (contextId == null) {
+            return;
+        }
+        try {
+            send(null, "Target.disposeBrowserContext", params("browserContextId", contextId));
+        } catch (RuntimeException e) {
+            log.warn("销毁浏览器上下文失败：{}, {}", contextId, e.getMessage());
+        }
+    }
+
+    /**
+     * @param sessionId 为 null 时发送给浏览器本身
+     */
+    Map<String, Object> send(SessionID sessionId, String method, Map<String, Object> params) {
+        Map<String, Object> result = connection.sendAndWait(sessionId,
+                new Command<Map<String, Object>>(method, params, MAP_TYPE), CDP_TIMEOUT);
+        return result == null ? new LinkedHashMap<>() : result;
+    }
+
+    static Map<String, Object> params(Object... keyValues) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            params.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return params;
+    }
+
+    public int availableLeases() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            connection.close();
+        } finally {
+            driver.quit();
+        }
+    }
+}
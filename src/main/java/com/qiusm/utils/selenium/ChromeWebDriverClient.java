@@ -1,6 +1,7 @@
 package com.qiusm.utils.selenium;
 
 import cn.hutool.core.thread.ThreadUtil;
+import com.qiusm.utils.metrics.UtilsMetrics;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -21,9 +22,14 @@ import java.util.Map;
  */
 @Data
 @Slf4j
-public class ChromeWebDriverClient {
+public class ChromeWebDriverClient implements WebDriverClient {
     final static String WEBDRIVER_CHROME_DRIVER = "/Users/qiushengming/Documents/tool/chromedriver/99.0.4844.51/chromedriver";
+    private static final UtilsMetrics.Timer PAGE_LOAD =
+            UtilsMetrics.timer("utils.browser.page.load", "打开页面到监听的接口完成的耗时", "result", "ok");
+    private static final UtilsMetrics.Timer PAGE_TIMEOUT =
+            UtilsMetrics.timer("utils.browser.page.load", "打开页面到监听的接口完成的耗时", "result", "timeout");
     private ChromeDriver driver;
+    private DevTools devTools;
     private boolean lock = false;
     private Integer clientId;
     private String webdriver;
@@ -41,7 +47,15 @@ public class ChromeWebDriverClient {
         init();
     }
 
-    public void getUrl(String url) {
+    /**
+     * 打开 url，并等待监听到的接口请求完成
+     *
+     * @param url 地址
+     * @return 超时返回 false
+     */
+    @Override
+    public boolean getUrl(String url) {
+        long start = System.nanoTime();
         driver.get(url);
         lock = true;
         long timeout = 10000;
@@ -51,28 +65,38 @@ public class ChromeWebDriverClient {
             if (timeout <= 0) {
                 log.info("失败的请求：url:{}", url);
                 lock = false;
+                PAGE_TIMEOUT.recordSince(start);
+                return false;
             }
         }
+        PAGE_LOAD.recordSince(start);
+        return true;
     }
 
     public boolean isLock() {
         return lock;
     }
 
-/*    public void interceptResponse4Xhr(DevTools devTools, String pattern, InterceptCallback<String> callback) {
-        devTools.addListener(Network.responseReceived(), responseReceived -> {
-            if (ResourceType.XHR != responseReceived.getType()) {
-                return;
-            }
-            String body = devTools.send((Network.getResponseBody(responseReceived.getRequestId()))).getBody();
-            callback.emit(body);
-        });
-    }*/
+    /**
+     * 捕获 url 匹配 pattern 的 XHR 响应体，结果通过返回对象的有界队列消费 <br>
+     * 不再需要时调用 {@link XhrResponseCapture#close()}
+     *
+     * @param pattern  url 匹配的正则
+     * @param capacity 队列容量
+     * @return 捕获器
+     */
+    public XhrResponseCapture interceptResponse4Xhr(String pattern, int capacity) {
+        XhrResponseCapture capture = new XhrResponseCapture(devTools, pattern, capacity);
+        capture.start();
+        return capture;
+    }
 
+    @Override
     public Integer getClientId() {
         return this.clientId;
     }
 
+    @Override
     public void quit() {
         this.driver.quit();
     }
@@ -91,7 +115,7 @@ public class ChromeWebDriverClient {
         Dimension dimension = new Dimension(414, 896);
         driver.manage().window().setSize(dimension);
 
-        DevTools devTools = driver.getDevTools();
+        devTools = driver.getDevTools();
         devTools.createSession();
         devTools.send(Network.enable(java.util.Optional.empty(), java.util.Optional.empty(), java.util.Optional.empty()));
         // 请求拦截监听设置，主要是为了监听是否将富文本数据发送到【community/review/push】接口上了
@@ -0,0 +1,140 @@
+package com.qiusm.utils.selenium;
+
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 抓取统计，包括汇总和每个 url 的耗时、失败次数 <br>
+ * 1. 汇总数据不限量；单个 url 的统计只保留最近访问的 maxUrls 个（LRU），长时间抓取不会无限增长 <br>
+ *
+ * @author qiushengming
+ */
+public class CrawlMetrics {
+
+    public static final int DEFAULT_MAX_URLS = 10000;
+
+    private final LongAdder success = new LongAdder();
+    private final LongAdder failure = new LongAdder();
+    private final LongAdder retry = new LongAdder();
+    /**
+     * 重试用完后放弃的 url 数
+     */
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    /**
+     * 按访问顺序排列，超过 maxUrls 时淘汰最久没有访问的；访问都在 synchronized (urlStats) 内
+     */
+    private final LinkedHashMap<String, UrlStat> urlStats;
+
+    public CrawlMetrics() {
+        this(DEFAULT_MAX_URLS);
+    }
+
+    /**
+     * @param maxUrls 保留统计的 url 个数上限
+     */
+    public CrawlMetrics(int maxUrls) {
+        if (maxUrls <= 0) {
+            throw new IllegalArgumentException("maxUrls 必须大于 0：" + maxUrls);
+        }
+        this.urlStats = new LinkedHashMap<String, UrlStat>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UrlStat> eldest) {
+                return size() > maxUrls;
+            }
+        };
+    }
+
+    void recordAttempt(String url, long latencyMillis, boolean ok) {
+        if (ok) {
+            success.increment();
+        } else {
+            failure.increment();
+        }
+        totalLatencyMillis.add(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+        UrlStat stat;
+        synchronized (urlStats) {
+            stat = urlStats.computeIfAbsent(url, k -> new UrlStat());
+        }
+        synchronized (stat) {
+            stat.attempts++;
+            if (!ok) {
+                stat.failures++;
+            }
+            stat.lastLatencyMillis = latencyMillis;
+            stat.totalLatencyMillis += latencyMillis;
+        }
+    }
+
+    void recordRetry() {
+        retry.increment();
+    }
+
+    void recordAbandoned() {
+        abandoned.increment();
+    }
+
+    public long getSuccessCount() {
+        return success.sum();
+    }
+
+    public long getFailureCount() {
+        return failure.sum();
+    }
+
+    public long getRetryCount() {
+        return retry.sum();
+    }
+
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+
+    /**
+     * @return 平均每次请求耗时（毫秒）
+     */
+    public double getAvgLatencyMillis() {
+        long count = success.sum() + failure.sum();
+        return count == 0 ? 0 : (double) totalLatencyMillis.sum() / count;
+    }
+
+    /**
+     * @return 已被淘汰或没有抓取过的 url 返回 null
+     */
+    public UrlStat getUrlStat(String url) {
+        synchronized (urlStats) {
+            return urlStats.get(url);
+        }
+    }
+
+    /**
+     * @return 当前保留的 url 统计的快照，按最近访问排在后面
+     */
+    public Map<String, UrlStat> getUrlStats() {
+        synchronized (urlStats) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(urlStats));
+        }
+    }
+
+    @Data
+    public static class UrlStat {
+        private int attempts;
+        private int failures;
+        private long lastLatencyMillis;
+        private long totalLatencyMillis;
+    }
+}
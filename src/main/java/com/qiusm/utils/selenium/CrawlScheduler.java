@@ -0,0 +1,193 @@
+package com.qiusm.utils.selenium;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多浏览器并行抓取调度 <br>
+ * 1. 每个 {@link WebDriverClient} 对应一个工作线程，从 {@link UrlFrontier} 取 url <br>
+ * 2. host 还在限流间隔内时，任务延后入队，浏览器继续处理其它 host，不空等 <br>
+ * 3. 失败按 retryBackoffMillis * 2^(n-1) 退避重试，超过 maxRetries 放弃 <br>
+ * 4. 统计见 {@link CrawlMetrics} <br>
+ *
+ * <pre>
+ * CrawlScheduler scheduler = new CrawlScheduler(clients, 1000, 3, 2000);
+ * scheduler.submitAll(urls);
+ * scheduler.start();
+ * scheduler.awaitIdle(10, TimeUnit.MINUTES);
+ * scheduler.shutdown();
+ * </pre>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+public class CrawlScheduler {
+
+    /**
+     * 重试退避的上限
+     */
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final List<? extends WebDriverClient> clients;
+
+    private final UrlFrontier frontier = new UrlFrontier();
+
+    private final HostRateLimiter rateLimiter;
+
+    private final CrawlMetrics metrics = new CrawlMetrics();
+
+    private final int maxRetries;
+
+    private final long retryBackoffMillis;
+
+    /**
+     * 还没有最终完成（成功或放弃）的 url 数
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    /**
+     * @param clients            浏览器池，每个客户端同一时间只处理一个 url
+     * @param hostIntervalMillis 同一 host 两次请求的最小间隔
+     * @param maxRetries         失败后最多重试次数
+     * @param retryBackoffMillis 第一次重试的等待时间
+     */
+    public CrawlScheduler(List<? extends WebDriverClient> clients, long hostIntervalMillis,
+                          int maxRetries, long retryBackoffMillis) {
+        if (clients == null || clients.isEmpty()) {
+            throw new IllegalArgumentException("clients 不能为空");
+        }
+        this.clients = clients;
+        this.rateLimiter = new HostRateLimiter(hostIntervalMillis);
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    /**
+     * 提交 url，重复的 url 会被忽略
+     *
+     * @return 是否新加入
+     */
+    public boolean submit(String url) {
+        outstanding.incrementAndGet();
+        if (frontier.add(url)) {
+            return true;
+        }
+        outstanding.decrementAndGet();
+        return false;
+    }
+
+    public void submitAll(Collection<String> urls) {
+        urls.forEach(this::submit);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (WebDriverClient client : clients) {
+            Thread worker = new Thread(() -> work(client), "crawl-worker-" + client.getClientId());
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * 等待所有已提交的 url 处理完成
+     *
+     * @return 超时返回 false
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (outstanding.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        return true;
+    }
+
+    /**
+     * 停止工作线程，不会关闭浏览器
+     */
+    public synchronized void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+    }
+
+    public CrawlMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    private void work(WebDriverClient client) {
+        while (running) {
+            UrlFrontier.Task task;
+            try {
+                task = frontier.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                continue;
+            }
+            long wait = rateLimiter.tryAcquire(HostRateLimiter.hostOf(task.getUrl()));
+            if (wait > 0) {
+                frontier.requeue(task, wait, false);
+                continue;
+            }
+            fetch(client, task);
+        }
+    }
+
+    private void fetch(WebDriverClient client, UrlFrontier.Task task) {
+        String url = task.getUrl();
+        long start = System.currentTimeMillis();
+        boolean ok;
+        try {
+            ok = client.getUrl(url);
+        } catch (Exception e) {
+            log.warn("抓取异常：client:{}, url:{}, {}", client.getClientId(), url, e.getMessage());
+            ok = false;
+        }
+        metrics.recordAttempt(url, System.currentTimeMillis() - start, ok);
+        if (ok) {
+            outstanding.decrementAndGet();
+        } else if (task.getAttempt() < maxRetries) {
+            metrics.recordRetry();
+            frontier.requeue(task, backoff(task.getAttempt() + 1), true);
+        } else {
+            log.info("重试次数用完，放弃：url:{}", url);
+            metrics.recordAbandoned();
+            outstanding.decrementAndGet();
+        }
+    }
+
+    private long backoff(int attempt) {
+        long delay = retryBackoffMillis << Math.min(attempt - 1, 20);
+        return Math.min(delay, MAX_BACKOFF_MILLIS);
+    }
+}
@@ -0,0 +1,28 @@
+package com.qiusm.utils.selenium;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 设备模拟参数，通过 DevTools 的 Emulation 域应用到每个 target 上 <br>
+ *
+ * @author qiushengming
+ */
+@Data
+@AllArgsConstructor
+public class EmulationProfile {
+    private int width;
+    private int height;
+    private double deviceScaleFactor;
+    private boolean mobile;
+    private String userAgent;
+
+    /**
+     * 与 {@link ChromeWebDriverClient} 的 mobileEmulation + 414x896 窗口保持一致
+     */
+    public static EmulationProfile iphone() {
+        return new EmulationProfile(414, 896, 3, true,
+                "Mozilla/5.0 (iPhone; CPU iPhone OS 13_2_3 like Mac OS X) AppleWebKit/605.1.15 "
+                        + "(KHTML, like Gecko) Version/13.0.3 Mobile/15E148 Safari/604.1");
+    }
+}
@@ -0,0 +1,58 @@
+package com.qiusm.utils.selenium;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 host 限制访问频率，同一个 host 两次请求之间至少间隔 intervalMillis <br>
+ * 拿不到许可时不阻塞，返回需要等待的时间，由调用方把任务延后，浏览器去处理别的 host <br>
+ *
+ * @author qiushengming
+ */
+public class HostRateLimiter {
+
+    private final long intervalMillis;
+
+    /**
+     * host -> 上次放行的时间
+     */
+    private final Map<String, AtomicLong> lastAccess = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * 尝试获取 host 的访问许可
+     *
+     * @return 0 表示已获取，否则为还需要等待的毫秒数
+     */
+    public long tryAcquire(String host) {
+        if (intervalMillis <= 0) {
+            return 0;
+        }
+        AtomicLong last = lastAccess.computeIfAbsent(host, k -> new AtomicLong(Long.MIN_VALUE / 2));
+        while (true) {
+            long now = System.currentTimeMillis();
+            long prev = last.get();
+            long wait = prev + intervalMillis - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (last.compareAndSet(prev, now)) {
+                return 0;
+            }
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? "" : host.toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.qiusm.utils.selenium;
+
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 待抓取的 url 队列 <br>
+ * 1. 同一个 url 只会入队一次（去掉 # 之后的部分再比较） <br>
+ * 2. 重试、限流等待的任务按到期时间出队 <br>
+ *
+ * @author qiushengming
+ */
+public class UrlFrontier {
+
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    private final DelayQueue<Task> queue = new DelayQueue<>();
+
+    /**
+     * 新增 url
+     *
+     * @return 已经存在返回 false
+     */
+    public boolean add(String url) {
+        if (!seen.add(normalize(url))) {
+            return false;
+        }
+        queue.offer(new Task(url, 0, System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * 延迟后重新入队，不做去重判断
+     */
+    void requeue(Task task, long delayMillis, boolean retry) {
+        int attempt = retry ? task.attempt + 1 : task.attempt;
+        queue.offer(new Task(task.url, attempt, System.currentTimeMillis() + delayMillis));
+    }
+
+    Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public int seenCount() {
+        return seen.size();
+    }
+
+    static String normalize(String url) {
+        int hash = url.indexOf('#');
+        return (hash >= 0 ? url.substring(0, hash) : url).trim();
+    }
+
+    @Getter
+    static class Task implements Delayed {
+        private final String url;
+        /**
+         * 已经失败的次数
+         */
+        private final int attempt;
+        private final long dueAt;
+
+        Task(String url, int attempt, long dueAt) {
+            this.url = url;
+            this.attempt = attempt;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(dueAt, ((Task) o).dueAt);
+        }
+    }
+}
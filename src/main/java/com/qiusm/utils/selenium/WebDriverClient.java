@@ -0,0 +1,21 @@
+package com.qiusm.utils.selenium;
+
+/**
+ * 浏览器客户端，{@link CrawlScheduler} 只依赖这个接口，测试时可以替换成假的实现 <br>
+ *
+ * @author qiushengming
+ */
+public interface WebDriverClient {
+
+    Integer getClientId();
+
+    /**
+     * 打开 url，阻塞到页面处理完成
+     *
+     * @param url 地址
+     * @return 成功返回 true，超时等失败情况返回 false
+     */
+    boolean getUrl(String url);
+
+    void quit();
+}
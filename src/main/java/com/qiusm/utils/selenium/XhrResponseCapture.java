@@ -0,0 +1,169 @@
+package com.qiusm.utils.selenium;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.network.Network;
+import org.openqa.selenium.devtools.network.model.RequestId;
+import org.openqa.selenium.devtools.network.model.ResourceType;
+import org.openqa.selenium.devtools.network.model.Response;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * XHR 响应捕获 <br>
+ * 1. responseReceived 只记录 url 匹配的请求，等到 loadingFinished 时响应体才完整，这时再去取 body <br>
+ * 2. {@code Network.getResponseBody} 在单独的线程上执行，DevTools 的事件线程只做匹配和投递，不会被阻塞 <br>
+ * 3. 结果放入有界队列，消费慢时取 body 的线程会等待队列空位；取 body 的任务队列也满了就直接丢弃并计数 <br>
+ * 4. DevTools 不支持单独移除监听器，{@link #close()} 之后监听器只会直接返回 <br>
+ *
+ * @author qiushengming
+ */
+@Slf4j
+public class XhrResponseCapture implements Closeable {
+
+    private final DevTools devTools;
+
+    private final Pattern urlPattern;
+
+    /**
+     * 捕获结果
+     */
+    private final BlockingQueue<CapturedResponse> responses;
+
+    /**
+     * 已收到响应头、还没加载完成的请求
+     */
+    private final Map<String, Response> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 取 body 的线程
+     */
+    private final ThreadPoolExecutor fetcher;
+
+    private final AtomicLong captured = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param devTools 已经 createSession 并且 Network.enable 的 DevTools
+     * @param pattern  url 匹配的正则，使用 {@link java.util.regex.Matcher#find()}
+     * @param capacity 结果队列容量
+     */
+    XhrResponseCapture(DevTools devTools, String pattern, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        this.devTools = devTools;
+        this.urlPattern = Pattern.compile(pattern);
+        this.responses = new ArrayBlockingQueue<>(capacity);
+        this.fetcher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), r -> {
+            Thread thread = new Thread(r, "xhr-capture-" + pattern);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        devTools.addListener(Network.responseReceived(), responseReceived -> {
+            if (closed || ResourceType.XHR != responseReceived.getType()) {
+                return;
+            }
+            Response response = responseReceived.getResponse();
+            if (urlPattern.matcher(response.getUrl()).find()) {
+                pending.put(responseReceived.getRequestId().toString(), response);
+            }
+        });
+        devTools.addListener(Network.loadingFinished(), loadingFinished -> {
+            Response response = pending.remove(loadingFinished.getRequestId().toString());
+            if (response == null || closed) {
+                return;
+            }
+            try {
+                fetcher.execute(() -> fetch(loadingFinished.getRequestId(), response));
+            } catch (RejectedExecutionException e) {
+                dropped.incrementAndGet();
+                log.warn("XHR 响应捕获积压，丢弃：{}", response.getUrl());
+            }
+        });
+        devTools.addListener(Network.loadingFailed(),
+                loadingFailed -> pending.remove(loadingFailed.getRequestId().toString()));
+    }
+
+    private void fetch(RequestId requestId, Response response) {
+        try {
+            Network.GetResponseBodyResponse body = devTools.send(Network.getResponseBody(requestId));
+            CapturedResponse capturedResponse = new CapturedResponse(requestId.toString(),
+                    response.getUrl(), response.getStatus(), response.getMimeType(),
+                    body.getBody(), Boolean.TRUE.equals(body.getBase64Encoded()),
+                    System.currentTimeMillis());
+            // 队列满时在这里等待，事件线程不受影响
+            responses.put(capturedResponse);
+            captured.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            dropped.incrementAndGet();
+            log.warn("获取 XHR 响应体失败：url:{}, {}", response.getUrl(), e.getMessage());
+        }
+    }
+
+    /**
+     * 获取一条捕获结果，等待直到超时
+     *
+     * @return 超时返回 null
+     */
+    public CapturedResponse poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return responses.poll(timeout, unit);
+    }
+
+    /**
+     * 获取一条捕获结果，没有则一直等待
+     */
+    public CapturedResponse take() throws InterruptedException {
+        return responses.take();
+    }
+
+    /**
+     * 批量取出当前已捕获的结果
+     *
+     * @return 取出的数量
+     */
+    public int drainTo(Collection<? super CapturedResponse> target, int maxElements) {
+        return responses.drainTo(target, maxElements);
+    }
+
+    /**
+     * @return 队列中待消费的数量
+     */
+    public int size() {
+        return responses.size();
+    }
+
+    public long getCapturedCount() {
+        return captured.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pending.clear();
+        fetcher.shutdownNow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.qiusm.utils;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 预编译的格式化结果与原来逐个单元格调用 HSSFDateUtil、DataFormatter 一致
+ *
+ * @author qiushengming
+ */
+public class CellFormatsTests {
+
+    private static final short[] INDEXES = {14, 22, 0, 1, 2, 3, 4, 9, 10, 164, 165, 166, 167, 168, 169, 170};
+
+    private static final String[] FORMATS = {"m/d/yy", "m/d/yy h:mm", "General", "0", "0.00", "#,##0",
+            "#,##0.00", "0%", "0.00%", "yyyy-mm-dd hh:mm:ss", "yyyy-mm-dd", "yyyy/mm/dd hh:mm",
+            "0.000", "#,##0.0", "0.0%", "[$-F800]dddd\\,\\ mmmm\\ dd\\,\\ yyyy"};
+
+    @Test
+    void matchesDataFormatter() {
+        CellFormats formats = new CellFormats(INDEXES, FORMATS);
+        DataFormatter dataFormatter = new DataFormatter();
+        for (String raw : values()) {
+            double value = Double.parseDouble(raw);
+            for (int style = 0; style < INDEXES.length; style++) {
+                if (value < 0 && formats.isDate(style)) {
+                    continue;
+                }
+                String expected;
+                if (DateUtil.isADateFormat(INDEXES[style], raw)) {
+                    expected = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(DateUtil.getJavaDate(value));
+                } else {
+                    expected = dataFormatter.formatRawCellContents(value, INDEXES[style], FORMATS[style]);
+                }
+                Assertions.assertEquals(expected.trim(), formats.getFormatter(style).format(raw).trim(),
+                        FORMATS[style] + " " + raw);
+            }
+        }
+        Assertions.assertTrue(formats.isDate(0));
+        Assertions.assertTrue(formats.isDate(9));
+        Assertions.assertFalse(formats.isDate(6));
+        Assertions.assertSame(CellFormats.RAW, formats.getFormatter(99));
+        Assertions.assertSame(formats.getFormatter(0), formats.getFormatter(1));
+    }
+
+    private static List<String> values() {
+        Random random = new Random(42);
+        List<String> values = new ArrayList<>();
+        String[] fixed = {"0", "1", "59", "60", "61", "0.5", "0.125", "1.005", "2.675", "-0.004", "-1234.565",
+                "123456789012", "43101", "43101.999999", "43101.5000057870", "2958465.99999999"};
+        for (String v : fixed) {
+            values.add(v);
+        }
+        for (int i = 0; i < 5000; i++) {
+            switch (i % 4) {
+                case 0:
+                    values.add(String.valueOf(random.nextInt(2000000) - 1000000));
+                    break;
+                case 1:
+                    values.add(String.valueOf(Math.round(random.nextDouble() * 1e7) / 100.0 - 50000));
+                    break;
+                case 2:
+                    values.add(String.valueOf(random.nextDouble()));
+                    break;
+                default:
+                    values.add(String.valueOf(random.nextDouble() * 60000));
+                    break;
+            }
+        }
+        return values;
+    }
+}
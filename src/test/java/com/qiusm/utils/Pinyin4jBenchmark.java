@@ -0,0 +1,98 @@
+package com.qiusm.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Pinyin4jUtil} 在不同语料上的耗时，每次调用处理整份语料 <br>
+ * 1. name：两三个字的姓名，字集中，缓存命中率高 <br>
+ * 2. address：较长的地址，夹杂数字 <br>
+ * 3. mixed：中英文、标点混排的商品标题 <br>
+ * 语料用固定种子生成，每次运行一致
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Pinyin4jBenchmark {
+
+    private static final String SURNAMES = "王李张刘陈杨黄赵吴周徐孙马朱胡郭何高林罗郑梁谢宋唐许韩冯邓曹彭曾肖田董袁潘于蒋蔡余杜叶程苏魏吕丁任沈姚卢";
+    private static final String GIVEN = "伟芳娜秀英敏静丽强磊军洋勇艳杰娟涛明超秀兰霞平刚桂英华玉萍红娥玲芬燕彬鹏辉浩宇轩然梓涵子豪";
+    private static final String[] CITIES = {"北京市朝阳区", "上海市浦东新区", "广州市天河区", "深圳市南山区", "杭州市西湖区", "成都市武侯区"};
+    private static final String[] ROADS = {"建国路", "世纪大道", "天河路", "科技园南路", "文三路", "人民南路"};
+    private static final String[] TITLES = {"Apple iPhone 13 手机", "小米 Redmi K50 至尊版", "华为 MateBook 14 笔记本电脑",
+            "联想 ThinkPad X1（2022款）", "Nike Air Max 运动鞋 男款", "农夫山泉 饮用水 550ml*24瓶"};
+
+    @Param({"name", "address", "mixed"})
+    private String corpus;
+
+    @Param({"1000"})
+    private int size;
+
+    private String[] texts;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            switch (corpus) {
+                case "name":
+                    StringBuilder name = new StringBuilder().append(SURNAMES.charAt(random.nextInt(SURNAMES.length())));
+                    int given = 1 + random.nextInt(2);
+                    for (int j = 0; j < given; j++) {
+                        name.append(GIVEN.charAt(random.nextInt(GIVEN.length())));
+                    }
+                    texts[i] = name.toString();
+                    break;
+                case "address":
+                    texts[i] = CITIES[random.nextInt(CITIES.length)] + ROADS[random.nextInt(ROADS.length)]
+                            + (1 + random.nextInt(999)) + "号" + (1 + random.nextInt(30)) + "栋";
+                    break;
+                default:
+                    texts[i] = TITLES[random.nextInt(TITLES.length)] + " " + (random.nextInt(9000) + 1000);
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void getPingYin(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(Pinyin4jUtil.getPingYin(text));
+        }
+    }
+
+    @Benchmark
+    public void converterToFirstSpellSmal(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(Pinyin4jUtil.converterToFirstSpellSmal(text));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Pinyin4jBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,27 @@
+package com.qiusm.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author qiushengming
+ */
+public class Pinyin4jUtilTests {
+
+    @Test
+    void convertsChinese() {
+        Assertions.assertEquals("zhongguo abc", Pinyin4jUtil.getPingYin("中国 abc"));
+        Assertions.assertEquals("ZG1", Pinyin4jUtil.converterToFirstSpell("中国1"));
+        Assertions.assertEquals("zg1", Pinyin4jUtil.converterToFirstSpellSmal("中国1"));
+        Assertions.assertEquals("lv", Pinyin4jUtil.getPingYin("绿"));
+    }
+
+    @Test
+    void keepsCharactersWithoutReading() {
+        // 丆 在 pinyin4j 的字典里没有读音，全角逗号不是汉字
+        Assertions.assertEquals("丆zhong，guo", Pinyin4jUtil.getPingYin("丆中，国"));
+        Assertions.assertEquals("丆Z，G", Pinyin4jUtil.converterToFirstSpell("丆中，国"));
+        Assertions.assertEquals("丆Z，G", Pinyin4jUtil.getAlpha2UpperCase("丆中，国"));
+        Assertions.assertEquals("丆z，g", Pinyin4jUtil.converterToFirstSpellSmal("丆中，国"));
+    }
+}
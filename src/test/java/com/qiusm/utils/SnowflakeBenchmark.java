@@ -0,0 +1,58 @@
+package com.qiusm.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SnowflakeUtil#nextId()} 在不同线程数下的吞吐 <br>
+ * 10 位序列每毫秒最多 1024 个 ID，单线程就可能撞到上限，多线程时主要看锁竞争和等待下一毫秒的开销
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnowflakeBenchmark {
+
+    private final SnowflakeUtil snowflake = SnowflakeUtil.getInstance();
+
+    @Benchmark
+    @Threads(1)
+    public long nextId1Thread() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextId4Threads() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long nextId16Threads() {
+        return snowflake.nextId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SnowflakeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.qiusm.utils;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按路径、按输入流、直接按 ZIP 条目三种读取方式结果一致
+ *
+ * @author qiushengming
+ */
+public class XlsxCovertCsvReaderTests {
+
+    @Test
+    void streamAndDirectMatchPath() throws Exception {
+        File file = XlsxFixtures.get(2000, 8);
+        List<String[]> expected = XlsxCovertCsvReader.readerExcel(file.getPath(), 8, XlsxFixtures.SHEET_NAME);
+        Assertions.assertEquals(2000, expected.size());
+
+        List<String[]> byStream;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            byStream = XlsxCovertCsvReader.readerExcel(in, 8, XlsxFixtures.SHEET_NAME);
+        }
+        assertRows(expected, byStream);
+
+        List<String[]> direct = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getPath(), 8, XlsxFixtures.SHEET_NAME, direct::add);
+        assertRows(expected, direct);
+
+        List<String[]> directByStream = new ArrayList<>();
+        try (InputStream in = new FileInputStream(file)) {
+            XlsxCovertCsvReader.readerExcelDirect(in, 8, XlsxFixtures.SHEET_NAME, directByStream::add);
+        }
+        assertRows(expected, directByStream);
+
+        List<String[]> missing = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getPath(), 8, "不存在", missing::add);
+        Assertions.assertTrue(missing.isEmpty());
+    }
+
+    /**
+     * SXSSF 默认写内联字符串，这里用 XSSF 生成共享字符串，并且目标 sheet 不是第一个
+     */
+    @Test
+    void directWithSharedStrings() throws Exception {
+        File file = new File("target/fixtures/shared-strings.xlsx");
+        file.getParentFile().mkdirs();
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+            workbook.createSheet("其他").createRow(0).createCell(0).setCellValue("x");
+            Sheet sheet = workbook.createSheet("数据");
+            for (int r = 0; r < 100; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("客户" + (r % 7));
+                row.createCell(2).setCellValue(r);
+            }
+            workbook.write(out);
+        }
+        List<String[]> expected = XlsxCovertCsvReader.readerExcel(file.getPath(), 3, "数据");
+        List<String[]> direct = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getPath(), 3, "数据", direct::add);
+        Assertions.assertEquals(100, expected.size());
+        Assertions.assertEquals("客户3", direct.get(3)[0]);
+        assertRows(expected, direct);
+    }
+
+    /**
+     * minColumns 小于实际列数时按实际列数读取
+     */
+    @Test
+    void widerThanMinColumns() throws Exception {
+        File file = XlsxFixtures.get(200, 4);
+        List<String[]> expected = XlsxCovertCsvReader.readerExcel(file.getPath(), 4, XlsxFixtures.SHEET_NAME);
+        List<String[]> direct = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getPath(), 1, XlsxFixtures.SHEET_NAME, direct::add);
+        assertRows(expected, direct);
+        assertRows(expected, XlsxCovertCsvReader.readerExcel(file.getPath(), 1, XlsxFixtures.SHEET_NAME));
+    }
+
+    private static void assertRows(List<String[]> expected, List<String[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i), "row " + i);
+        }
+    }
+}
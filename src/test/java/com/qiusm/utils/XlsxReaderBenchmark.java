@@ -0,0 +1,97 @@
+package com.qiusm.utils;
+
+import com.qiusm.utils.excel.WorkbookParseCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link XlsxCovertCsvReader} 读取合成 xlsx 的耗时 <br>
+ * 1. 文件由 {@link XlsxFixtures} 生成，行数、列数可以通过 -p rows=...,columns=... 调整 <br>
+ * 2. 分别按路径、按输入流（先落临时文件）、直接按 ZIP 条目读取 <br>
+ * 3. 加 -prof gc 对比 gc.alloc.rate.norm，可以看出输入流读取不再把整个包读进堆 <br>
+ * 4. readCached 读 {@link WorkbookParseCache} 磁盘层命中的结果（含计算文件的 SHA-256） <br>
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class XlsxReaderBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"8"})
+    private int columns;
+
+    private File file;
+
+    private WorkbookParseCache cache;
+
+    @Setup
+    public void setup() throws Exception {
+        file = XlsxFixtures.get(rows, columns);
+        cache = new WorkbookParseCache(Files.createTempDirectory("xlsx-cache-bench").toFile(), 0, 1L << 30);
+        cache.readAll(file, columns, XlsxFixtures.SHEET_NAME);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        cache.clear();
+    }
+
+    @Benchmark
+    public List<String[]> readByPath() throws Exception {
+        return XlsxCovertCsvReader.readerExcel(file.getAbsolutePath(), columns, XlsxFixtures.SHEET_NAME);
+    }
+
+    @Benchmark
+    public List<String[]> readByStream() throws Exception {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return XlsxCovertCsvReader.readerExcel(in, columns, XlsxFixtures.SHEET_NAME);
+        }
+    }
+
+    @Benchmark
+    public List<String[]> readDirect() throws Exception {
+        List<String[]> rows = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getAbsolutePath(), columns, XlsxFixtures.SHEET_NAME, rows::add);
+        return rows;
+    }
+
+    @Benchmark
+    public List<String[]> readCached() throws Exception {
+        return cache.readAll(file, columns, XlsxFixtures.SHEET_NAME);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(XlsxReaderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.qiusm.utils.collection;
+
+import com.qiusm.utils.SnowflakeUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author qiushengming
+ */
+public class ConcurrentLongObjectMapTests {
+
+    @Test
+    void concurrentPutAndGet() throws Exception {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(1024, 8);
+        ConcurrentLongHashSet seen = new ConcurrentLongHashSet(1024, 8);
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        long id = SnowflakeUtil.getInstance().nextId();
+                        if (!seen.add(id)) {
+                            duplicates.incrementAndGet();
+                        }
+                        map.put(id, id);
+                        Assertions.assertEquals(Long.valueOf(id), map.get(id));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertEquals(0, duplicates.get());
+        Assertions.assertEquals(160000, map.size());
+        Assertions.assertEquals(160000, seen.size());
+        map.forEach((key, value) -> Assertions.assertEquals(key, value.longValue()));
+    }
+
+    @Test
+    void computeIfAbsentOnce() throws Exception {
+        ConcurrentLongObjectMap<Object> map = new ConcurrentLongObjectMap<>(16, 1);
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for (long key = 0; key < 1000; key++) {
+                        map.computeIfAbsent(key, k -> {
+                            created.incrementAndGet();
+                            return new Object();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertEquals(1000, created.get());
+        Assertions.assertEquals(1000, map.size());
+    }
+}
@@ -0,0 +1,86 @@
+package com.qiusm.utils.collection;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 随机操作与 HashMap 对照
+ *
+ * @author qiushengming
+ */
+public class LongObjectMapTests {
+
+    @Test
+    void randomOperations() {
+        Random random = new Random(7);
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            // key 范围小，保证有大量冲突、覆盖和删除，包括 0
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                Assertions.assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+        }
+        for (long key = -1000; key < 1000; key++) {
+            Assertions.assertEquals(expected.get(key), map.get(key));
+            Assertions.assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        Map<Long, String> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        Assertions.assertEquals(expected, iterated);
+        Assertions.assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    void intMapAndLists() {
+        IntObjectMap<IntArrayList> map = new IntObjectMap<>();
+        for (int i = 0; i < 100000; i++) {
+            map.computeIfAbsent(i % 100, k -> new IntArrayList()).add(i);
+        }
+        Assertions.assertEquals(100, map.size());
+        IntArrayList zero = map.get(0);
+        Assertions.assertEquals(1000, zero.size());
+        Assertions.assertEquals(99900, zero.get(999));
+        Assertions.assertNull(map.get(100));
+
+        LongArrayList longs = new LongArrayList(0);
+        for (long i = 0; i < 100; i++) {
+            longs.add(100 - i);
+        }
+        longs.sort();
+        Assertions.assertEquals(1, longs.get(0));
+        Assertions.assertEquals(5050, longs.stream().sum());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> longs.get(100));
+    }
+
+    @Test
+    void hashSetWithLoadFactor() {
+        Random random = new Random(11);
+        LongHashSet set = new LongHashSet(16, 0.5f);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(5000) - 2500;
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                Assertions.assertEquals(expected.add(key), set.add(key));
+            }
+        }
+        Assertions.assertEquals(expected.size(), set.size());
+        for (long key = -2500; key < 2500; key++) {
+            Assertions.assertEquals(expected.contains(key), set.contains(key));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LongObjectMap<>(16, 1f));
+    }
+}
@@ -0,0 +1,171 @@
+package com.qiusm.utils.collection;
+
+import com.qiusm.utils.SnowflakeUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snowflake ID 为 key 时，原生类型集合与 HashMap/ConcurrentHashMap 的对比 <br>
+ * 1. build*：按预期大小构造并放入全部 ID；加 -prof gc 时 gc.alloc.rate.norm 约等于集合本身的内存占用 <br>
+ * 2. get*：在已构建好的集合里随机查找 <br>
+ * 3. concurrent*：4 个线程，读写 9:1 <br>
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PrimitiveCollectionsBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"0.5", "0.75"})
+    private float loadFactor;
+
+    private long[] ids;
+
+    private final Object value = new Object();
+
+    private Map<Long, Object> hashMap;
+    private LongObjectMap<Object> longObjectMap;
+    private Set<Long> hashSet;
+    private LongHashSet longHashSet;
+    private ConcurrentHashMap<Long, Object> concurrentHashMap;
+    private ConcurrentLongObjectMap<Object> concurrentLongObjectMap;
+
+    @Setup
+    public void setup() {
+        ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = SnowflakeUtil.getInstance().nextId();
+        }
+        hashMap = buildHashMap();
+        longObjectMap = buildLongObjectMap();
+        hashSet = buildHashSet();
+        longHashSet = buildLongHashSet();
+        concurrentHashMap = new ConcurrentHashMap<>(size);
+        concurrentLongObjectMap = new ConcurrentLongObjectMap<>(size, 64, loadFactor);
+        for (long id : ids) {
+            concurrentHashMap.put(id, value);
+            concurrentLongObjectMap.put(id, value);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Long, Object> buildHashMap() {
+        Map<Long, Object> map = new HashMap<>((int) (size / loadFactor) + 1, loadFactor);
+        for (long id : ids) {
+            map.put(id, value);
+        }
+        return map;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongObjectMap<Object> buildLongObjectMap() {
+        LongObjectMap<Object> map = new LongObjectMap<>(size, loadFactor);
+        for (long id : ids) {
+            map.put(id, value);
+        }
+        return map;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<Long> buildHashSet() {
+        Set<Long> set = new HashSet<>((int) (size / loadFactor) + 1, loadFactor);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongHashSet buildLongHashSet() {
+        LongHashSet set = new LongHashSet(size, loadFactor);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Object getHashMap() {
+        return hashMap.get(randomId());
+    }
+
+    @Benchmark
+    public Object getLongObjectMap() {
+        return longObjectMap.get(randomId());
+    }
+
+    @Benchmark
+    public boolean containsHashSet() {
+        return hashSet.contains(randomId());
+    }
+
+    @Benchmark
+    public boolean containsLongHashSet() {
+        return longHashSet.contains(randomId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void concurrentHashMap(Blackhole blackhole) {
+        long id = randomId();
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            blackhole.consume(concurrentHashMap.put(id, value));
+        } else {
+            blackhole.consume(concurrentHashMap.get(id));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void concurrentLongObjectMap(Blackhole blackhole) {
+        long id = randomId();
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            blackhole.consume(concurrentLongObjectMap.put(id, value));
+        } else {
+            blackhole.consume(concurrentLongObjectMap.get(id));
+        }
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PrimitiveCollectionsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,151 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.XlsxFixtures;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 中途失败后用同一个 importId 重跑，结果与一次跑完一致
+ *
+ * @author qiushengming
+ */
+public class CheckpointedExcelImportTests {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void resumeAfterFailure() throws Exception {
+        File fixture = XlsxFixtures.get(2000, 8);
+        File output = new File(dir, "rows.csv");
+        FileCheckpointStore store = new FileCheckpointStore(dir);
+        CheckpointedExcelImport excelImport = new CheckpointedExcelImport(store, 100);
+
+        try (CsvSink failing = new CsvSink(output, 1550)) {
+            Assertions.assertThrows(IOException.class,
+                    () -> excelImport.run("fixture-2000", fixture.getPath(), 8, XlsxFixtures.SHEET_NAME, failing));
+        }
+        ImportCheckpoint checkpoint = store.load("fixture-2000");
+        Assertions.assertEquals(1500, checkpoint.getRowNumber());
+        Assertions.assertEquals(XlsxFixtures.SHEET_NAME, checkpoint.getSheetName());
+        Assertions.assertEquals(CheckpointedExcelImport.fingerprint(fixture), checkpoint.getFileFingerprint());
+        Assertions.assertEquals(checkpoint.getSinkOffset(), output.length());
+
+        try (CsvSink resumed = new CsvSink(output, -1)) {
+            Assertions.assertEquals(500, excelImport.run("fixture-2000", fixture.getPath(), 8,
+                    XlsxFixtures.SHEET_NAME, resumed));
+            Assertions.assertEquals(1501, resumed.firstRow);
+        }
+        Assertions.assertNull(store.load("fixture-2000"));
+
+        List<String> expected = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(fixture.getPath(), 8, XlsxFixtures.SHEET_NAME, 0,
+                (row, rowNumber) -> expected.add(line(rowNumber, row)));
+        Assertions.assertEquals(expected, Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void refuseToResumeWithAnotherFile() throws Exception {
+        File fixture = XlsxFixtures.get(2000, 8);
+        File other = new File(dir, "other.xlsx");
+        Files.copy(fixture.toPath(), other.toPath());
+        File output = new File(dir, "rows.csv");
+        FileCheckpointStore store = new FileCheckpointStore(dir);
+        CheckpointedExcelImport excelImport = new CheckpointedExcelImport(store, 100);
+
+        try (CsvSink failing = new CsvSink(output, 150)) {
+            Assertions.assertThrows(IOException.class,
+                    () -> excelImport.run("fixture-2000", other.getPath(), 8, XlsxFixtures.SHEET_NAME, failing));
+        }
+        // 同名文件被换掉了
+        try (FileChannel channel = FileChannel.open(other.toPath(), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0}));
+        }
+        try (CsvSink resumed = new CsvSink(output, -1)) {
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> excelImport.run("fixture-2000", other.getPath(), 8, XlsxFixtures.SHEET_NAME, resumed));
+            Assertions.assertEquals(0, resumed.firstRow);
+        }
+        Assertions.assertEquals(100, store.load("fixture-2000").getRowNumber());
+    }
+
+    @Test
+    void rejectsUnsafeImportId() throws Exception {
+        FileCheckpointStore store = new FileCheckpointStore(dir);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.load("../etc/passwd"));
+    }
+
+    private static String line(int rowNumber, String[] row) {
+        return rowNumber + "," + String.join(",", row).replace("null", "");
+    }
+
+    /**
+     * 追加写 CSV，commit 时 force；failAt 行抛异常模拟中途失败
+     */
+    private static class CsvSink implements ImportSink {
+
+        private final File file;
+
+        private final int failAt;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        private FileChannel channel;
+
+        private int firstRow;
+
+        CsvSink(File file, int failAt) {
+            this.file = file;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void open(long offset) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(offset);
+            channel.position(offset);
+        }
+
+        @Override
+        public void accept(int rowNumber, String[] row) throws IOException {
+            if (rowNumber == failAt) {
+                channel.close();
+                throw new IOException("模拟第 " + rowNumber + " 行失败");
+            }
+            if (firstRow == 0) {
+                firstRow = rowNumber;
+            }
+            buffer.append(line(rowNumber, row)).append('\n');
+        }
+
+        @Override
+        public long commit() throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            buffer.setLength(0);
+            return channel.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.qiusm.utils.excel;
+
+import com.alibaba.fastjson.JSON;
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.XlsxFixtures;
+import com.qiusm.utils.metrics.MetricsBackend;
+import com.qiusm.utils.metrics.MicrometerMetricsBackend;
+import com.qiusm.utils.metrics.UtilsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author qiushengming
+ */
+public class ExcelImportServiceTests {
+
+    @Test
+    void concurrentImportsAreBoundedAndAllComplete() throws Exception {
+        File fixture = XlsxFixtures.get(2000, 8);
+        int expected = XlsxCovertCsvReader.readerExcel(fixture.getPath(), 8, XlsxFixtures.SHEET_NAME).size();
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        ImportSinkFactory factory = job -> new ImportSink() {
+            @Override
+            public void open(long offset) {
+                maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            }
+
+            @Override
+            public void accept(int rowNumber, String[] row) {
+            }
+
+            @Override
+            public long commit() {
+                // 不到 commit 间隔，只在结束时 commit 一次
+                open.decrementAndGet();
+                return 0;
+            }
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        ExcelImportService service = new ExcelImportService(factory, 2, 16, 100);
+        try {
+            List<ExcelImportJob> jobs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                jobs.add(service.submit("fixture-" + i + ".xlsx", copy(fixture), XlsxFixtures.SHEET_NAME, 8));
+            }
+            for (ExcelImportJob job : jobs) {
+                await(job);
+                Assertions.assertEquals(ExcelImportJob.State.SUCCEEDED, job.getState(), job.getError());
+                Assertions.assertEquals(expected, job.getRows());
+                Assertions.assertTrue(job.getRowsPerSecond() > 0);
+            }
+            Assertions.assertTrue(maxOpen.get() <= 2, "同时解析 " + maxOpen.get());
+            Assertions.assertEquals(8, closed.get());
+            awaitIdle(service);
+            Assertions.assertEquals(8, service.list().size());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void rejectWhenFullAndReportFailures() throws Exception {
+        File fixture = XlsxFixtures.get(200, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        ImportSinkFactory blocking = job -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+        ExcelImportService service = new ExcelImportService(blocking, 1, 2, 1);
+        try {
+            ExcelImportJob first = service.submit("a.xlsx", copy(fixture), XlsxFixtures.SHEET_NAME, 4);
+            File broken = File.createTempFile("broken", ".xlsx");
+            Files.write(broken.toPath(), "not a zip".getBytes());
+            ExcelImportJob second = service.submit("b.xlsx", broken, XlsxFixtures.SHEET_NAME, 4);
+            File third = copy(fixture);
+            Assertions.assertThrows(RejectedExecutionException.class,
+                    () -> service.submit("c.xlsx", third, XlsxFixtures.SHEET_NAME, 4));
+            Assertions.assertFalse(third.exists());
+
+            release.countDown();
+            await(first);
+            await(second);
+            Assertions.assertEquals(ExcelImportJob.State.SUCCEEDED, first.getState());
+            Assertions.assertEquals(ExcelImportJob.State.FAILED, second.getState());
+            Assertions.assertNotNull(second.getError());
+            awaitIdle(service);
+            // 只保留最近结束的一个
+            Assertions.assertEquals(1, service.list().size());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void uploadAndPollOverHttp() throws Exception {
+        File fixture = XlsxFixtures.get(500, 4);
+        ExcelImportService service = new ExcelImportService((ImportSinkFactory) null, 2, 4, 10);
+        try {
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new ExcelImportController(service)).build();
+            MockMultipartFile upload = new MockMultipartFile("file", "fixture.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                    Files.readAllBytes(fixture.toPath()));
+            MvcResult result = mvc.perform(multipart("/excel/imports").file(upload).param("minColumns", "4"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.fileName").value("fixture.xlsx"))
+                    .andReturn();
+            String id = JSON.parseObject(result.getResponse().getContentAsString()).getString("id");
+            await(service.get(id));
+
+            mvc.perform(get("/excel/imports/" + id))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.state").value("SUCCEEDED"))
+                    .andExpect(jsonPath("$.rows").value(service.get(id).getRows()));
+            mvc.perform(get("/excel/imports"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.concurrency").value(2))
+                    .andExpect(jsonPath("$.jobs[0].id").value(id));
+            mvc.perform(get("/excel/imports/404"))
+                    .andExpect(status().isNotFound());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void uploadWiderThanDefaultMinColumns() throws Exception {
+        File fixture = XlsxFixtures.get(300, 6);
+        int expected = XlsxCovertCsvReader.readerExcel(fixture.getPath(), 6, XlsxFixtures.SHEET_NAME).size();
+        ExcelImportService service = new ExcelImportService((ImportSinkFactory) null, 1, 2, 10);
+        try {
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new ExcelImportController(service)).build();
+            MockMultipartFile upload = new MockMultipartFile("file", "wide.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                    Files.readAllBytes(fixture.toPath()));
+            // 不传 minColumns
+            MvcResult result = mvc.perform(multipart("/excel/imports").file(upload))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+            ExcelImportJob job = service.get(
+                    JSON.parseObject(result.getResponse().getContentAsString()).getString("id"));
+            await(job);
+            Assertions.assertEquals(ExcelImportJob.State.SUCCEEDED, job.getState(), job.getError());
+            Assertions.assertEquals(expected, job.getRows());
+
+            mvc.perform(multipart("/excel/imports").file(upload).param("minColumns", "0"))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void sinkIsClosedWhenImportFails() throws Exception {
+        File fixture = XlsxFixtures.get(200, 4);
+        AtomicInteger closed = new AtomicInteger();
+        ImportSinkFactory failing = job -> new ImportSink() {
+            @Override
+            public void open(long offset) {
+            }
+
+            @Override
+            public void accept(int rowNumber, String[] row) throws IOException {
+                throw new IOException("模拟写入失败");
+            }
+
+            @Override
+            public long commit() {
+                return 0;
+            }
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        ExcelImportService service = new ExcelImportService(failing, 1, 2, 10);
+        try {
+            ExcelImportJob job = service.submit("a.xlsx", copy(fixture), XlsxFixtures.SHEET_NAME, 4);
+            await(job);
+            Assertions.assertEquals(ExcelImportJob.State.FAILED, job.getState());
+            Assertions.assertTrue(job.getError().contains("模拟写入失败"), job.getError());
+            Assertions.assertEquals(1, closed.get());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void interruptedJobsCountAsFailed() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UtilsMetrics.install(new MicrometerMetricsBackend(registry));
+        File fixture = XlsxFixtures.get(200, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        ImportSinkFactory blocking = job -> {
+            started.countDown();
+            try {
+                TimeUnit.SECONDS.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+        ExcelImportService service = new ExcelImportService(blocking, 1, 2, 10);
+        try {
+            ExcelImportJob running = service.submit("a.xlsx", copy(fixture), XlsxFixtures.SHEET_NAME, 4);
+            // 第二个任务在等并发名额
+            ExcelImportJob queued = service.submit("b.xlsx", copy(fixture), XlsxFixtures.SHEET_NAME, 4);
+            Assertions.assertTrue(started.await(30, TimeUnit.SECONDS));
+            service.destroy();
+            await(running);
+            await(queued);
+            Assertions.assertEquals(ExcelImportJob.State.FAILED, queued.getState());
+            Assertions.assertTrue(queued.getError().contains("InterruptedException"), queued.getError());
+            Assertions.assertEquals(2, registry.get("utils.xlsx.async.failed").counter().count());
+        } finally {
+            UtilsMetrics.install(MetricsBackend.NOOP);
+            service.destroy();
+        }
+    }
+
+    @Test
+    void missingSheetFailsTheJob() throws Exception {
+        File fixture = XlsxFixtures.get(200, 4);
+        ExcelImportService service = new ExcelImportService((ImportSinkFactory) null, 1, 2, 10);
+        try {
+            ExcelImportJob job = service.submit("a.xlsx", copy(fixture), "不存在", 4);
+            await(job);
+            Assertions.assertEquals(ExcelImportJob.State.FAILED, job.getState());
+            Assertions.assertEquals(0, job.getRows());
+            Assertions.assertTrue(job.getError().contains("可选：[" + XlsxFixtures.SHEET_NAME + "]"), job.getError());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static void await(ExcelImportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!job.isFinished()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "导入超时 " + job.getId());
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitIdle(ExcelImportService service) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (service.getPending() > 0) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "导入超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private static File copy(File fixture) throws IOException {
+        File tmp = File.createTempFile("excel-import-test", ".xlsx");
+        Files.copy(fixture.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return tmp;
+    }
+}
@@ -0,0 +1,48 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxFixtures;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * 经过内嵌容器和 multipart 解析上传，MockMvc 不检查上传大小限制
+ *
+ * @author qiushengming
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ExcelImportUploadTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void uploadLargerThanServletDefaults() throws Exception {
+        File fixture = XlsxFixtures.get(30000, 8);
+        Assertions.assertTrue(fixture.length() > 1024 * 1024, "fixture " + fixture.length());
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new FileSystemResource(fixture));
+        body.add("minColumns", "8");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        ResponseEntity<Map> response = restTemplate.postForEntity("/excel/imports",
+                new HttpEntity<>(body, headers), Map.class);
+
+        Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode(), String.valueOf(response.getBody()));
+        Assertions.assertEquals(fixture.length(), ((Number) response.getBody().get("fileSize")).longValue());
+    }
+}
@@ -0,0 +1,61 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.XlsxFixtures;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author qiushengming
+ */
+public class OffHeapRowStoreTests {
+
+    @Test
+    void randomAndSequentialAcrossSegments() throws Exception {
+        File dir = Files.createTempDirectory("offheap-rows-test").toFile();
+        try (OffHeapRowStore store = OffHeapRowStore.mapped(dir, 4096)) {
+            for (int i = 0; i < 5000; i++) {
+                Assertions.assertEquals(i, store.append(new String[]{"行" + i, null, "", String.valueOf(i * 7)}));
+            }
+            Assertions.assertEquals(5000, store.size());
+            Assertions.assertTrue(store.getCapacity() > 4096);
+            Assertions.assertArrayEquals(new String[]{"行4321", null, "", "30247"}, store.get(4321));
+
+            // 两遍顺序遍历结果一致
+            for (int pass = 0; pass < 2; pass++) {
+                Iterator<String[]> it = store.iterator();
+                for (int i = 0; i < 5000; i++) {
+                    Assertions.assertEquals("行" + i, it.next()[0]);
+                }
+                Assertions.assertFalse(it.hasNext());
+            }
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> store.append(new String[]{new String(new char[5000])}));
+        }
+        Assertions.assertArrayEquals(new String[0], dir.list());
+        Assertions.assertTrue(dir.delete());
+    }
+
+    @Test
+    void streamExcelIntoStore() throws Exception {
+        File file = XlsxFixtures.get(2000, 8);
+        List<String[]> expected = XlsxCovertCsvReader.readerExcel(file.getPath(), 8, XlsxFixtures.SHEET_NAME);
+        OffHeapRowStore store = OffHeapRowStore.direct(64 * 1024);
+        try {
+            XlsxCovertCsvReader.readerExcel(file.getPath(), 8, XlsxFixtures.SHEET_NAME, store::append);
+            Assertions.assertEquals(expected.size(), store.size());
+            int i = 0;
+            for (String[] row : store) {
+                Assertions.assertArrayEquals(expected.get(i++), row);
+            }
+        } finally {
+            store.close();
+        }
+        Assertions.assertThrows(IllegalStateException.class, () -> store.get(0));
+    }
+}
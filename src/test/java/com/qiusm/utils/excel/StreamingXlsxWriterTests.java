@@ -0,0 +1,144 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.mapstruct.Dto;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.ZipFile;
+
+/**
+ * 写出后用 {@link XlsxCovertCsvReader} 读回来对照
+ *
+ * @author qiushengming
+ */
+public class StreamingXlsxWriterTests {
+
+    @Test
+    void roundTripWithReader() throws Exception {
+        StreamingXlsxWriter<Dto> writer = new StreamingXlsxWriter<Dto>()
+                .column("编号", Dto::getIntValue)
+                .column("名称", Dto::getStr)
+                .column("日期", Dto::getDate)
+                .column("标记", Dto::isBooleanValue)
+                .column("时间", dto -> LocalDateTime.of(2018, 7, 3, 12, 30, 15).plusSeconds(dto.getIntValue()))
+                .column("生日", dto -> LocalDate.of(2000, 1, 1).plusDays(dto.getIntValue() % 1000));
+        // 共享字符串表只放 50 条，其余走内联字符串
+        writer.setMaxSharedStrings(50);
+        File file = new File("target/fixtures/streaming-writer.xlsx");
+        file.getParentFile().mkdirs();
+        long written;
+        try (OutputStream out = new FileOutputStream(file)) {
+            written = writer.write(out, "导出", IntStream.range(0, 20000).mapToObj(StreamingXlsxWriterTests::dto));
+        }
+        Assertions.assertEquals(20000, written);
+
+        List<String[]> rows = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getPath(), 6, "导出", rows::add);
+        Assertions.assertEquals(20001, rows.size());
+        Assertions.assertArrayEquals(new String[]{"编号", "名称", "日期", "标记", "时间", "生日"}, rows.get(0));
+        for (int i = 0; i < 20000; i++) {
+            String[] row = rows.get(i + 1);
+            Assertions.assertEquals(String.valueOf(i), row[0]);
+            Assertions.assertEquals(i % 7 == 0 ? null : "名称 & <" + (i % 100) + ">", row[1]);
+            Assertions.assertEquals(i % 2 == 0 ? "TRUE" : "FALSE", row[3]);
+            Assertions.assertEquals(LocalDateTime.of(2018, 7, 3, 12, 30, 15).plusSeconds(i)
+                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")), row[4]);
+            Assertions.assertEquals(LocalDate.of(2000, 1, 1).plusDays(i % 1000).toString(), row[5]);
+        }
+        // 经过 OPC 的读取方式结果一致
+        List<String[]> byPackage = XlsxCovertCsvReader.readerExcel(file.getPath(), 6, "导出");
+        Assertions.assertEquals(rows.size(), byPackage.size());
+        Assertions.assertArrayEquals(rows.get(12345), byPackage.get(12345));
+        try (ZipFile zip = new ZipFile(file)) {
+            Assertions.assertNotNull(zip.getEntry("xl/sharedStrings.xml"));
+        }
+    }
+
+    @Test
+    void splitsSheets() throws Exception {
+        StreamingXlsxWriter<Integer> writer = new StreamingXlsxWriter<Integer>().column("n", n -> n);
+        writer.setMaxRowsPerSheet(1001);
+        File file = new File("target/fixtures/streaming-writer-split.xlsx");
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            writer.write(out, "数据", IntStream.range(0, 2500).boxed().iterator());
+        }
+        List<String[]> third = new ArrayList<>();
+        XlsxCovertCsvReader.readerExcelDirect(file.getPath(), 1, "数据 (3)", third::add);
+        Assertions.assertEquals(501, third.size());
+        Assertions.assertEquals("2000", third.get(1)[0]);
+        Assertions.assertEquals("AB", StreamingXlsxWriter.columnName(27));
+        // POI 的完整模型也能打开
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            Assertions.assertEquals(3, workbook.getNumberOfSheets());
+            Assertions.assertEquals(1999, workbook.getSheet("数据 (2)").getRow(1000).getCell(0).getNumericCellValue(), 0);
+        }
+    }
+
+    @Test
+    void sanitizesSheetNames() throws Exception {
+        StreamingXlsxWriter<Integer> writer = new StreamingXlsxWriter<Integer>().column("n", n -> n);
+        writer.setMaxRowsPerSheet(2);
+        File file = new File("target/fixtures/streaming-writer-sheet-name.xlsx");
+        file.getParentFile().mkdirs();
+        String name = "2018/07 订单[明细]: 导出结果 *全部* 共三十个字符以上";
+        try (OutputStream out = new FileOutputStream(file)) {
+            writer.write(out, name, IntStream.range(0, 12).boxed().iterator());
+        }
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            Assertions.assertEquals(12, workbook.getNumberOfSheets());
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                String sheetName = workbook.getSheetName(i);
+                Assertions.assertTrue(sheetName.length() <= 31, sheetName);
+                Assertions.assertFalse(sheetName.matches(".*[\\[\\]:*?/\\\\].*"), sheetName);
+            }
+            Assertions.assertEquals("2018 07 订单 明细   导出结果  全部  共三十个字", workbook.getSheetName(0));
+            Assertions.assertTrue(workbook.getSheetName(11).endsWith(" (12)"));
+        }
+    }
+
+    @Test
+    void writesLongIdsAsText() throws Exception {
+        long id = 1234567890123456789L;
+        StreamingXlsxWriter<Integer> writer = new StreamingXlsxWriter<Integer>()
+                .column("id", n -> id + n)
+                .column("金额", n -> new BigDecimal("123456789012.345"))
+                .column("整数", n -> 1_000_000_000_000_000L);
+        File file = new File("target/fixtures/streaming-writer-long.xlsx");
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            writer.write(out, "ids", IntStream.range(0, 3).boxed().iterator());
+        }
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            Row row = workbook.getSheetAt(0).getRow(2);
+            // 超过 15 位有效数字，按文本写，原样保留
+            Assertions.assertEquals(CellType.STRING, row.getCell(0).getCellTypeEnum());
+            Assertions.assertEquals(String.valueOf(id + 1), row.getCell(0).getStringCellValue());
+            Assertions.assertEquals(CellType.NUMERIC, row.getCell(1).getCellTypeEnum());
+            Assertions.assertEquals(CellType.NUMERIC, row.getCell(2).getCellTypeEnum());
+        }
+    }
+
+    private static Dto dto(int i) {
+        Dto dto = new Dto();
+        dto.setIntValue(i);
+        dto.setStr(i % 7 == 0 ? null : "名称 & <" + (i % 100) + ">");
+        dto.setDate("2018-07-" + (i % 28 + 1));
+        dto.setBooleanValue(i % 2 == 0);
+        return dto;
+    }
+}
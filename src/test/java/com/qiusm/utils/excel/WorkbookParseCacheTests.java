@@ -0,0 +1,157 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.XlsxCovertCsvReader;
+import com.qiusm.utils.XlsxFixtures;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author qiushengming
+ */
+public class WorkbookParseCacheTests {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void hitBySameContentFromAnyPathOrStream() throws Exception {
+        File fixture = XlsxFixtures.get(2000, 8);
+        List<String[]> expected = XlsxCovertCsvReader.readerExcel(fixture.getPath(), 8, XlsxFixtures.SHEET_NAME);
+        // 只用磁盘层
+        WorkbookParseCache cache = new WorkbookParseCache(new File(dir, "cache"), 0, 1L << 30);
+
+        assertRows(expected, cache.readAll(fixture, 8, XlsxFixtures.SHEET_NAME));
+        long diskBytes = cache.getDiskBytes();
+        Assertions.assertTrue(diskBytes > 0);
+        Assertions.assertTrue(diskBytes < fixture.length() * 4, "缓存文件 " + diskBytes);
+
+        // 内容相同、路径不同
+        File copy = new File(dir, "copy.xlsx");
+        Files.copy(fixture.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertRows(expected, cache.readAll(copy, 8, XlsxFixtures.SHEET_NAME));
+        List<String[]> fromStream = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(fixture.toPath())) {
+            cache.read(in, 8, XlsxFixtures.SHEET_NAME, fromStream::add);
+        }
+        assertRows(expected, fromStream);
+        Assertions.assertEquals(diskBytes, cache.getDiskBytes());
+        Assertions.assertEquals(0, cache.getMemoryBytes());
+
+        // 读取选项不同是另一个条目
+        cache.readAll(fixture, 10, XlsxFixtures.SHEET_NAME);
+        Assertions.assertEquals(2, new File(dir, "cache").list().length);
+    }
+
+    @Test
+    void memoryTierIsWeightedLru() throws Exception {
+        File small = XlsxFixtures.get(200, 4);
+        File large = XlsxFixtures.get(2000, 8);
+        WorkbookParseCache cache = new WorkbookParseCache(new File(dir, "cache"), 1 << 20, 1L << 30);
+
+        List<String[]> expected = cache.readAll(small, 4, XlsxFixtures.SHEET_NAME);
+        long smallBytes = cache.getMemoryBytes();
+        Assertions.assertTrue(smallBytes > 0);
+        // 删掉磁盘层，仍能从内存命中
+        cache.readAll(large, 8, XlsxFixtures.SHEET_NAME);
+        for (File cached : new File(dir, "cache").listFiles()) {
+            Assertions.assertTrue(cached.delete());
+        }
+        assertRows(expected, cache.readAll(small, 4, XlsxFixtures.SHEET_NAME));
+        Assertions.assertTrue(cache.getMemoryBytes() <= 1 << 20);
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.getMemoryBytes());
+        assertRows(expected, cache.readAll(small, 4, XlsxFixtures.SHEET_NAME));
+    }
+
+    @Test
+    void diskHitIsPromotedToMemory() throws Exception {
+        File fixture = XlsxFixtures.get(200, 4);
+        File cacheDir = new File(dir, "cache");
+        List<String[]> expected = new WorkbookParseCache(cacheDir, 0, 1L << 30).readAll(fixture, 4, XlsxFixtures.SHEET_NAME);
+
+        // 新实例（相当于重启后）内存层为空，第一次从磁盘命中
+        WorkbookParseCache cache = new WorkbookParseCache(cacheDir, 1 << 20, 1L << 30);
+        Assertions.assertEquals(0, cache.getMemoryBytes());
+        assertRows(expected, cache.readAll(fixture, 4, XlsxFixtures.SHEET_NAME));
+        Assertions.assertEquals(cache.getDiskBytes(), cache.getMemoryBytes());
+
+        // 删掉磁盘层，第二次从内存命中
+        for (File cached : cacheDir.listFiles()) {
+            Assertions.assertTrue(cached.delete());
+        }
+        assertRows(expected, cache.readAll(fixture, 4, XlsxFixtures.SHEET_NAME));
+        Assertions.assertEquals(0, cacheDir.list().length, "内存命中不应重新解析");
+
+        // 超过 maxMemoryBytes / 4 的磁盘命中不放入内存
+        WorkbookParseCache small = new WorkbookParseCache(new File(dir, "small"), 0, 1L << 30);
+        small.readAll(fixture, 4, XlsxFixtures.SHEET_NAME);
+        WorkbookParseCache tiny = new WorkbookParseCache(new File(dir, "small"), small.getDiskBytes() * 4 - 1, 1L << 30);
+        assertRows(expected, tiny.readAll(fixture, 4, XlsxFixtures.SHEET_NAME));
+        Assertions.assertEquals(0, tiny.getMemoryBytes());
+    }
+
+    @Test
+    void diskTierEvictsLeastRecentlyUsed() throws Exception {
+        File fixture = XlsxFixtures.get(2000, 8);
+        WorkbookParseCache probe = new WorkbookParseCache(new File(dir, "probe"), 0, 1L << 30);
+        probe.readAll(fixture, 8, XlsxFixtures.SHEET_NAME);
+        long entryBytes = probe.getDiskBytes();
+
+        // 只放得下两个条目
+        WorkbookParseCache cache = new WorkbookParseCache(new File(dir, "cache"), 0, entryBytes * 2 + entryBytes / 2);
+        cache.readAll(fixture, 8, XlsxFixtures.SHEET_NAME);
+        cache.readAll(fixture, 9, XlsxFixtures.SHEET_NAME);
+        cache.readAll(fixture, 10, XlsxFixtures.SHEET_NAME);
+        Assertions.assertEquals(2, new File(dir, "cache").list().length);
+        Assertions.assertTrue(cache.getDiskBytes() <= entryBytes * 2 + entryBytes / 2);
+    }
+
+    @Test
+    void rowCodecRoundTrip() throws Exception {
+        char[] big = new char[100000];
+        Arrays.fill(big, '长');
+        List<String[]> rows = Arrays.asList(
+                new String[]{"a", null, "", "中文"},
+                new String[0],
+                new String[]{new String(big), "尾"});
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (WorkbookParseCache.RowWriter writer = new WorkbookParseCache.RowWriter(bytes)) {
+            for (String[] row : rows) {
+                writer.write(row);
+            }
+        }
+        List<String[]> fromArray = new ArrayList<>();
+        WorkbookParseCache.RowReader reader = WorkbookParseCache.RowReader.of(bytes.toByteArray());
+        Assertions.assertTrue(reader.readHeader());
+        reader.forEach(fromArray::add);
+        assertRows(rows, fromArray);
+
+        List<String[]> fromStream = new ArrayList<>();
+        reader = new WorkbookParseCache.RowReader(new ByteArrayInputStream(bytes.toByteArray()));
+        Assertions.assertTrue(reader.readHeader());
+        reader.forEach(fromStream::add);
+        assertRows(rows, fromStream);
+
+        Assertions.assertFalse(new WorkbookParseCache.RowReader(
+                new ByteArrayInputStream(new byte[]{'P', 'K', 3, 4})).readHeader());
+    }
+
+    private static void assertRows(List<String[]> expected, List<String[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i), "第 " + i + " 行");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.qiusm.utils.excel;
+
+import com.qiusm.utils.mapstruct.Dto;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@link StreamingXlsxWriter} 与 POI SXSSF 导出 Dto 的对比 <br>
+ * 1. 行对象边生成边写，不预先放进集合，加 -prof gc 看每次导出的分配量 <br>
+ * 2. 输出到空流，不计磁盘 IO；SXSSF 仍会写自己的临时文件 <br>
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class XlsxWriterBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Benchmark
+    public long streaming() throws Exception {
+        return new StreamingXlsxWriter<Dto>()
+                .column("编号", Dto::getIntValue)
+                .column("名称", Dto::getStr)
+                .column("日期", Dto::getDate)
+                .column("标记", Dto::isBooleanValue)
+                .write(nullOutput(), "Sheet1", IntStream.range(0, rows).mapToObj(XlsxWriterBenchmark::dto));
+    }
+
+    @Benchmark
+    public long sxssf() throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try {
+            Sheet sheet = workbook.createSheet("Sheet1");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("编号");
+            header.createCell(1).setCellValue("名称");
+            header.createCell(2).setCellValue("日期");
+            header.createCell(3).setCellValue("标记");
+            for (int i = 0; i < rows; i++) {
+                Dto dto = dto(i);
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(dto.getIntValue());
+                row.createCell(1).setCellValue(dto.getStr());
+                row.createCell(2).setCellValue(dto.getDate());
+                row.createCell(3).setCellValue(dto.isBooleanValue());
+            }
+            workbook.write(nullOutput());
+        } finally {
+            workbook.dispose();
+        }
+        return rows;
+    }
+
+    private static OutputStream nullOutput() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+    }
+
+    private static Dto dto(int i) {
+        Dto dto = new Dto();
+        dto.setIntValue(i);
+        dto.setStr("客户" + (i % 1000));
+        dto.setDate("2018-07-" + (i % 28 + 1));
+        dto.setBooleanValue(i % 2 == 0);
+        return dto;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(XlsxWriterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
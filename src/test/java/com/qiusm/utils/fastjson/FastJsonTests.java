@@ -1,10 +1,23 @@
 package com.qiusm.utils.fastjson;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
 import com.alibaba.fastjson.annotation.JSONField;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 /**
  * @author qiushengming
  */
@@ -35,4 +48,97 @@ public class FastJsonTests {
         OrgAccountModel o = JSON.parseObject(s, OrgAccountModel.class);
         log.info("{}", o);
     }
+
+    /**
+     * 预编译的编解码器与默认配置结果一致，alternateNames 仍然有效
+     */
+    @Test
+    void codec() {
+        OrgAccountModel model = new OrgAccountModel();
+        model.setOrgCode("Test-Code");
+        model.setOrgName("Test-Name");
+
+        JsonCodec codec = JsonCodec.getInstance();
+        String json = codec.toJson(model);
+        Assertions.assertEquals(JSON.toJSONString(model), json);
+        Assertions.assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), codec.toJsonBytes(model));
+        Assertions.assertEquals(model, codec.parse(json, OrgAccountModel.class));
+        Assertions.assertEquals(model, codec.parse(json.getBytes(StandardCharsets.UTF_8), OrgAccountModel.class));
+
+        String alternate = "{\"orgName\":\"Test-Name\",\"orgCode\":\"Test-Code\"}";
+        Assertions.assertEquals(model, codec.parse(alternate, OrgAccountModel.class));
+        List<OrgAccountModel> list = codec.parseArray("[" + alternate + "," + json + "]", OrgAccountModel.class);
+        Assertions.assertEquals(2, list.size());
+        Assertions.assertEquals(model, list.get(0));
+    }
+
+    /**
+     * 流式写出再流式读回，读取时兼容 alternateNames
+     */
+    @Test
+    void streamArray() throws IOException {
+        JsonArrayStreamCodec codec = new JsonArrayStreamCodec();
+        Iterator<OrgAccountModel> iterator = IntStream.range(0, 1000).mapToObj(i -> {
+            OrgAccountModel model = new OrgAccountModel();
+            model.setOrgCode("code-" + i);
+            model.setOrgName("name-" + i);
+            return model;
+        }).iterator();
+        StringWriter writer = new StringWriter();
+        Assertions.assertEquals(1000, codec.write(writer, iterator));
+        Assertions.assertEquals(1000, JSON.parseArray(writer.toString()).size());
+
+        List<OrgAccountModel> models = new ArrayList<>();
+        Assertions.assertEquals(1000, codec.read(new StringReader(writer.toString()), OrgAccountModel.class, models::add));
+        Assertions.assertEquals("name-999", models.get(999).getOrgName());
+
+        String alternate = "[{\"orgName\":\"a\",\"orgCode\":\"1\"},{\"name\":\"b\",\"orgCode\":\"2\"}]";
+        models.clear();
+        codec.read(new StringReader(alternate), OrgAccountModel.class, models::add);
+        Assertions.assertEquals("a", models.get(0).getOrgName());
+        Assertions.assertEquals("b", models.get(1).getOrgName());
+    }
+
+    /**
+     * 流式写出使用 codec 自己的 SerializeConfig，与 toJson 结果一致；读取结束或出错都会关闭 reader
+     */
+    @Test
+    void streamArrayUsesCodecConfig() throws IOException {
+        JsonCodec codec = new JsonCodec(OrgAccountModel.class);
+        // 只在这个 codec 里生效的序列化器
+        codec.getSerializeConfig().put(OrgAccountModel.class, (serializer, object, fieldName, fieldType, features) ->
+                serializer.write(((OrgAccountModel) object).getOrgCode()));
+        List<OrgAccountModel> list = IntStream.range(0, 600).mapToObj(i -> {
+            OrgAccountModel model = new OrgAccountModel();
+            model.setOrgCode("code-" + i);
+            model.setOrgName("name-" + i);
+            return model;
+        }).collect(Collectors.toList());
+        list.add(null);
+
+        StringWriter writer = new StringWriter();
+        Assertions.assertEquals(601, new JsonArrayStreamCodec(codec).write(writer, list.iterator()));
+        Assertions.assertEquals(codec.toJson(list), writer.toString());
+        Assertions.assertNotEquals(JSON.toJSONString(list), writer.toString());
+        StringWriter empty = new StringWriter();
+        new JsonArrayStreamCodec(codec).write(empty, new ArrayList<>().iterator());
+        Assertions.assertEquals("[]", empty.toString());
+
+        AtomicInteger closed = new AtomicInteger();
+        JsonArrayStreamCodec streamCodec = new JsonArrayStreamCodec();
+        streamCodec.read(new StringReader("[{\"orgCode\":\"1\"}]") {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        }, OrgAccountModel.class, model -> { });
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertThrows(JSONException.class, () -> streamCodec.read(new StringReader("[{\"orgCode\":") {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        }, OrgAccountModel.class, model -> { }));
+        Assertions.assertEquals(2, closed.get());
+    }
 }
@@ -0,0 +1,129 @@
+package com.qiusm.utils.fastjson;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON 编解码对比：fastjson 默认配置、{@link JsonCodec}、Jackson <br>
+ * 1. small 为单个 {@link OrgAccountModel}，large 为 10000 个组成的数组 <br>
+ * 2. Jackson 不识别 {@code @JSONField}，输出的 key 是 orgName 而不是 name，只比较速度 <br>
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private static final Type LIST_TYPE = new TypeReference<List<OrgAccountModel>>() {
+    }.getType();
+
+    @Param({"small", "large"})
+    private String payload;
+
+    private Object value;
+
+    private Type type;
+
+    private JavaType jacksonType;
+
+    private String fastjsonText;
+
+    private String jacksonText;
+
+    private final JsonCodec codec = JsonCodec.getInstance();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        if ("small".equals(payload)) {
+            value = model(0);
+            type = OrgAccountModel.class;
+            jacksonType = objectMapper.constructType(OrgAccountModel.class);
+        } else {
+            List<OrgAccountModel> list = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                list.add(model(i));
+            }
+            value = list;
+            type = LIST_TYPE;
+            jacksonType = objectMapper.getTypeFactory().constructCollectionType(List.class, OrgAccountModel.class);
+        }
+        fastjsonText = JSON.toJSONString(value);
+        jacksonText = objectMapper.writeValueAsString(value);
+    }
+
+    private static OrgAccountModel model(int i) {
+        OrgAccountModel model = new OrgAccountModel();
+        model.setOrgCode("ORG-" + i);
+        model.setOrgName("组织名称-" + i);
+        return model;
+    }
+
+    @Benchmark
+    public String fastjsonDefaultWrite() {
+        return JSON.toJSONString(value);
+    }
+
+    @Benchmark
+    public String codecWrite() {
+        return codec.toJson(value);
+    }
+
+    @Benchmark
+    public byte[] codecWriteBytes() {
+        return codec.toJsonBytes(value);
+    }
+
+    @Benchmark
+    public String jacksonWrite() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    @Benchmark
+    public Object fastjsonDefaultRead() {
+        return JSON.parseObject(fastjsonText, type);
+    }
+
+    @Benchmark
+    public Object codecRead() {
+        return codec.parse(fastjsonText, type);
+    }
+
+    @Benchmark
+    public Object jacksonRead() throws JsonProcessingException {
+        return objectMapper.readValue(jacksonText, jacksonType);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.qiusm.utils.id;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.qiusm.utils.SnowflakeUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author qiushengming
+ */
+public class IdControllerTests {
+
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new IdController()).build();
+
+    @Test
+    void nextIdsAcrossMillisecondsMatchesNextId() {
+        SnowflakeUtil snowflake = SnowflakeUtil.getInstance();
+        long before = snowflake.nextId();
+        // 超过每毫秒 1024 的序列，需要跨毫秒
+        long[] ids = snowflake.nextIds(5000);
+        long after = snowflake.nextId();
+        Assertions.assertTrue(before < ids[0]);
+        for (int i = 1; i < ids.length; i++) {
+            Assertions.assertTrue(ids[i - 1] < ids[i], "第 " + i + " 个");
+        }
+        Assertions.assertTrue(ids[ids.length - 1] < after);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> snowflake.nextIds(0));
+    }
+
+    @Test
+    void singleJsonAndBinary() throws Exception {
+        long single = Long.parseLong(mvc.perform(get("/ids/next"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        JSONArray array = JSON.parseArray(mvc.perform(get("/ids").param("count", "100")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        Assertions.assertEquals(100, array.size());
+        long[] json = new long[array.size()];
+        for (int i = 0; i < json.length; i++) {
+            // 按字符串返回，JavaScript 客户端不会丢精度
+            Assertions.assertTrue(array.get(i) instanceof String, String.valueOf(array.get(i)));
+            json[i] = Long.parseLong(array.getString(i));
+        }
+        Assertions.assertTrue(json[0] > 1L << 53);
+        Assertions.assertTrue(single < json[0]);
+
+        byte[] body = mvc.perform(get("/ids").param("count", "100")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(800, body.length);
+        LongBuffer binary = ByteBuffer.wrap(body).asLongBuffer();
+        Assertions.assertTrue(json[99] < binary.get(0));
+        Assertions.assertTrue(binary.get(0) < binary.get(99));
+
+        mvc.perform(get("/ids").param("count", String.valueOf(IdController.MAX_COUNT + 1)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/ids").param("count", "0").accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(status().isBadRequest());
+    }
+}
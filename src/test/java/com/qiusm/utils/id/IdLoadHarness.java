@@ -0,0 +1,163 @@
+package com.qiusm.utils.id;
+
+import com.qiusm.utils.UtilsApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ID 接口的压测，按固定 QPS 发请求（开环），输出 p50/p99 延迟 <br>
+ * 1. 延迟从计划发出的时间算起，不是从实际发出算起，服务变慢时排队的时间也计入，避免协调遗漏 <br>
+ * 2. 不传 url 时在本进程随机端口启动 {@link UtilsApplication} <br>
+ * 3. 1 分钟内没跑完的请求计为 timedOut，不参与延迟统计 <br>
+ * 4. mode：single 每次请求 /ids/next；batch 每次取 count 个二进制 ID；client 每次从 {@link SegmentIdClient} 取一个 <br>
+ * <pre>
+ * IdLoadHarness [mode=single] [qps=2000] [seconds=10] [count=1000] [threads=64] [url]
+ * </pre>
+ *
+ * @author qiushengming
+ */
+public class IdLoadHarness {
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = arg(args, 0, "single");
+        int qps = Integer.parseInt(arg(args, 1, "2000"));
+        int seconds = Integer.parseInt(arg(args, 2, "10"));
+        int count = Integer.parseInt(arg(args, 3, "1000"));
+        int threads = Integer.parseInt(arg(args, 4, "64"));
+        String url = arg(args, 5, null);
+
+        ConfigurableApplicationContext context = null;
+        if (url == null) {
+            context = SpringApplication.run(UtilsApplication.class, "--server.port=0");
+            url = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+        HttpIdSource source = new HttpIdSource(url, 5000);
+        SegmentIdClient client = new SegmentIdClient(source, count);
+        String nextUrl = url + "/ids/next";
+        Operation operation;
+        switch (mode) {
+            case "single":
+                operation = () -> get(nextUrl);
+                break;
+            case "batch":
+                operation = () -> source.fetch(count);
+                break;
+            case "client":
+                operation = client::nextId;
+                break;
+            default:
+                throw new IllegalArgumentException("未知的 mode：" + mode);
+        }
+        try {
+            // 预热
+            run(operation, qps, Math.min(seconds, 3), threads);
+            Result result = run(operation, qps, seconds, threads);
+            System.out.printf("mode=%s target=%d qps achieved=%.0f qps requests=%d errors=%d timedOut=%d%n",
+                    mode, qps, result.achievedQps, result.latencies.length, result.errors, result.timedOut);
+            System.out.printf("p50=%.3f ms p99=%.3f ms p99.9=%.3f ms max=%.3f ms%n",
+                    result.percentile(50), result.percentile(99), result.percentile(99.9), result.percentile(100));
+        } finally {
+            client.close();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static Result run(Operation operation, int qps, int seconds, int threads) throws InterruptedException {
+        int total = qps * seconds;
+        long interval = TimeUnit.SECONDS.toNanos(1) / qps;
+        long[] latencies = new long[total];
+        // -1 表示还没跑完
+        Arrays.fill(latencies, -1L);
+        AtomicLong errors = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int index = i;
+            workers.execute(() -> {
+                try {
+                    operation.run();
+                } catch (IOException | RuntimeException e) {
+                    errors.incrementAndGet();
+                }
+                latencies[index] = System.nanoTime() - intended;
+            });
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] finished = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        return new Result(finished, errors.get(), total - finished.length, finished.length * 1e9 / elapsed);
+    }
+
+    private static void get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException("HTTP " + connection.getResponseCode());
+        }
+        try (InputStream in = connection.getInputStream()) {
+            while (in.read() >= 0) {
+                // 读完响应，连接才能复用
+            }
+        }
+    }
+
+    private static String arg(String[] args, int index, String defaultValue) {
+        return args.length > index ? args[index] : defaultValue;
+    }
+
+    private static final class Result {
+
+        private final long[] latencies;
+
+        private final long errors;
+
+        private final long timedOut;
+
+        private final double achievedQps;
+
+        Result(long[] latencies, long errors, long timedOut, double achievedQps) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.timedOut = timedOut;
+            this.achievedQps = achievedQps;
+        }
+
+        /**
+         * @return 毫秒
+         */
+        double percentile(double percent) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percent / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+    }
+}
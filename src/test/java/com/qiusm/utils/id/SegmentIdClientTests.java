@@ -0,0 +1,92 @@
+package com.qiusm.utils.id;
+
+import com.qiusm.utils.SnowflakeUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author qiushengming
+ */
+public class SegmentIdClientTests {
+
+    @Test
+    void prefetchBeforeSegmentRunsOut() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch secondFetch = new CountDownLatch(1);
+        IdSource source = count -> {
+            if (fetches.incrementAndGet() == 2) {
+                secondFetch.countDown();
+            }
+            return SnowflakeUtil.getInstance().nextIds(count);
+        };
+        try (SegmentIdClient client = new SegmentIdClient(source, 100, 20)) {
+            long last = 0;
+            for (int i = 0; i < 80; i++) {
+                long id = client.nextId();
+                Assertions.assertTrue(last < id);
+                last = id;
+            }
+            // 剩余 20 个时已经开始取下一段
+            Assertions.assertTrue(secondFetch.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; i++) {
+                long id = client.nextId();
+                Assertions.assertTrue(last < id);
+                last = id;
+            }
+            Assertions.assertTrue(fetches.get() >= 11 && fetches.get() <= 12, "取了 " + fetches.get() + " 次");
+        }
+    }
+
+    @Test
+    void uniqueAcrossThreads() throws Exception {
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        try (SegmentIdClient client = new SegmentIdClient(SnowflakeUtil.getInstance()::nextIds, 500)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        Assertions.assertTrue(seen.add(client.nextId()));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        Assertions.assertEquals(40000, seen.size());
+    }
+
+    @Test
+    void failedFetchIsRetried() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        IdSource source = count -> {
+            if (fail.get()) {
+                throw new IOException("服务不可用");
+            }
+            return SnowflakeUtil.getInstance().nextIds(count);
+        };
+        try (SegmentIdClient client = new SegmentIdClient(source, 10)) {
+            Assertions.assertThrows(UncheckedIOException.class, client::nextId);
+            fail.set(false);
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < 25; i++) {
+                ids.add(client.nextId());
+            }
+            Assertions.assertEquals(25, ids.size());
+        }
+    }
+}
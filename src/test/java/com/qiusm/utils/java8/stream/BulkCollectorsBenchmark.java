@@ -0,0 +1,109 @@
+package com.qiusm.utils.java8.stream;
+
+import com.qiusm.utils.collection.IntObjectMap;
+import com.qiusm.utils.collection.LongArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * List 转 Map、分组：{@link Collectors} 与 {@link BulkCollectors} 的对比 <br>
+ * 加 -prof gc 可以看到每次操作分配的字节数（gc.alloc.rate.norm）
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkCollectorsBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private List<Item> items;
+
+    @Setup
+    public void setup() {
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(i, i % 1000, "item-" + i));
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Item> collectorsToMap() {
+        return items.stream().collect(Collectors.toMap(Item::getId, v -> v, (u, v) -> u, HashMap::new));
+    }
+
+    @Benchmark
+    public Map<Integer, Item> presizedToMap() {
+        return items.stream().collect(BulkCollectors.toMap(Item::getId, v -> v, (u, v) -> u, items.size()));
+    }
+
+    @Benchmark
+    public IntObjectMap<Item> primitiveToMap() {
+        return items.stream().collect(BulkCollectors.toIntMap(Item::getId, v -> v, (u, v) -> u, items.size()));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> collectorsGrouping() {
+        return items.stream().collect(Collectors.groupingBy(Item::getGroup,
+                Collectors.mapping(Item::getId, Collectors.toList())));
+    }
+
+    @Benchmark
+    public Map<Integer, LongArrayList> primitiveGrouping() {
+        return items.stream().collect(BulkCollectors.groupingToLongList(Item::getGroup, Item::getId));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BulkCollectorsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    public static class Item {
+        private final int id;
+        private final int group;
+        private final String name;
+
+        Item(int id, int group, String name) {
+            this.id = id;
+            this.group = group;
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getGroup() {
+            return group;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
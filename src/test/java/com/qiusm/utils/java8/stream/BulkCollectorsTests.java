@@ -0,0 +1,63 @@
+package com.qiusm.utils.java8.stream;
+
+import com.qiusm.utils.collection.LongArrayList;
+import com.qiusm.utils.collection.LongObjectMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * @author qiushengming
+ */
+public class BulkCollectorsTests {
+
+    @Test
+    void toMapSameAsCollectors() {
+        List<Integer> values = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+        Map<Integer, Integer> expected = values.stream().collect(Collectors.toMap(v -> v % 1000, v -> v, Integer::sum));
+        Assertions.assertEquals(expected,
+                values.stream().collect(BulkCollectors.toMap(v -> v % 1000, v -> v, Integer::sum, values.size())));
+        Assertions.assertEquals(expected,
+                values.parallelStream().collect(BulkCollectors.toMap(v -> v % 1000, v -> v, Integer::sum, 0)));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> values.stream().collect(BulkCollectors.toMap(v -> v % 10, v -> v, values.size())));
+    }
+
+    @Test
+    void primitiveKeys() {
+        LongObjectMap<String> map = LongStream.range(0, 1000000).parallel()
+                .mapToObj(Long::valueOf)
+                .collect(BulkCollectors.toLongMap(Long::longValue, String::valueOf));
+        Assertions.assertEquals(1000000, map.size());
+        Assertions.assertEquals("999999", map.get(999999));
+
+        // 保留先出现的值，并行时也要保持顺序语义
+        LongObjectMap<Long> first = LongStream.range(0, 100000).parallel()
+                .mapToObj(Long::valueOf)
+                .collect(BulkCollectors.toLongMap(v -> v % 10, v -> v, (u, v) -> u, 16));
+        Assertions.assertEquals(Long.valueOf(3), first.get(3));
+    }
+
+    @Test
+    void groupingKeepsOrder() {
+        Map<Boolean, LongArrayList> grouped = LongStream.range(0, 100000).parallel()
+                .mapToObj(Long::valueOf)
+                .collect(BulkCollectors.groupingToLongList(v -> v % 2 == 0, Long::longValue));
+        LongArrayList even = grouped.get(true);
+        Assertions.assertEquals(50000, even.size());
+        for (int i = 0; i < even.size(); i++) {
+            Assertions.assertEquals(i * 2L, even.get(i));
+        }
+
+        LongObjectMap<LongArrayList> byMod = LongStream.range(0, 100000).parallel()
+                .mapToObj(Long::valueOf)
+                .collect(BulkCollectors.groupingByLongToLongList(v -> v % 7, Long::longValue));
+        Assertions.assertEquals(7, byMod.size());
+        Assertions.assertEquals(6L, byMod.get(6).get(0));
+    }
+}
@@ -0,0 +1,236 @@
+package com.qiusm.utils.logstash;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.status.Status;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 使用本地 socket 模拟 logstash
+ *
+ * @author qiushengming
+ */
+public class AsyncBatchLogstashAppenderTests {
+
+    @Test
+    void shipToSocket() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread stub = new Thread(() -> readLines(server, lines));
+            stub.setDaemon(true);
+            stub.start();
+
+            LoggerContext context = new LoggerContext();
+            AsyncBatchLogstashAppender appender = new AsyncBatchLogstashAppender();
+            appender.setContext(context);
+            appender.setName("logstash");
+            appender.setDestination("localhost:" + server.getLocalPort());
+            appender.setAppName("utils-test");
+            appender.setBatchSize(100);
+            appender.setFlushIntervalMillis(50);
+            appender.start();
+            Logger logger = context.getLogger(AsyncBatchLogstashAppenderTests.class);
+            logger.addAppender(appender);
+
+            for (int i = 0; i < 1000; i++) {
+                logger.info("测试日志输出：{}", i);
+            }
+            logger.error("出错了", new NullPointerException("test null"));
+            appender.stop();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (lines.size() < 1001 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            Assertions.assertEquals(1001, lines.size());
+            Assertions.assertEquals(1001, appender.getSentCount());
+            Assertions.assertEquals(0, appender.getDroppedCount());
+            JSONObject first = JSON.parseObject(lines.get(0));
+            Assertions.assertEquals("utils-test", first.getString("app_name"));
+            Assertions.assertEquals("测试日志输出：0", first.getString("msg"));
+            Assertions.assertNotNull(first.getString("@timestamp"));
+            Assertions.assertTrue(JSON.parseObject(lines.get(1000)).getString("stack_trace").contains("test null"));
+        }
+    }
+
+    @Test
+    void dropWhenBufferFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        LogShipper slow = new LogShipper() {
+            @Override
+            public void send(List<byte[]> events) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        LoggerContext context = new LoggerContext();
+        AsyncBatchLogstashAppender appender = new AsyncBatchLogstashAppender();
+        appender.setContext(context);
+        appender.setShipper(slow);
+        appender.setBufferSize(16);
+        appender.setBatchSize(4);
+        appender.setDropPolicy(DropPolicy.DROP_OLDEST);
+        appender.start();
+        Logger logger = context.getLogger(AsyncBatchLogstashAppenderTests.class);
+        logger.addAppender(appender);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            logger.info("测试日志输出：{}", i);
+        }
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "logstash 慢时不应阻塞记录日志的线程");
+        Assertions.assertTrue(appender.getQueueDepth() <= 16);
+        Assertions.assertTrue(appender.getDroppedCount() > 0);
+        release.countDown();
+        appender.stop();
+    }
+
+    @Test
+    void spillDuringOutage(@TempDir File dir) throws InterruptedException {
+        AtomicBoolean down = new AtomicBoolean(true);
+        List<String> received = new CopyOnWriteArrayList<>();
+        LogShipper flaky = new LogShipper() {
+            @Override
+            public void send(List<byte[]> events) throws IOException {
+                if (down.get()) {
+                    throw new IOException("connection refused");
+                }
+                for (byte[] event : events) {
+                    received.add(JSON.parseObject(new String(event, StandardCharsets.UTF_8)).getString("msg"));
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        LoggerContext context = new LoggerContext();
+        AsyncBatchLogstashAppender appender = new AsyncBatchLogstashAppender();
+        appender.setContext(context);
+        appender.setShipper(flaky);
+        appender.setBatchSize(50);
+        appender.setFlushIntervalMillis(10);
+        appender.setReconnectDelayMillis(20);
+        appender.setSpillDirectory(dir.getAbsolutePath());
+        appender.setSpillSegmentSize(64 * 1024);
+        appender.start();
+        Logger logger = context.getLogger(AsyncBatchLogstashAppenderTests.class);
+        logger.addAppender(appender);
+
+        for (int i = 0; i < 1000; i++) {
+            logger.info("{}", i);
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assertions.assertTrue(appender.getSpilledCount() > 0);
+        down.set(false);
+        for (int i = 1000; i < 1500; i++) {
+            logger.info("{}", i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < 1500 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        appender.stop();
+
+        Assertions.assertEquals(0, appender.getDroppedCount());
+        Assertions.assertEquals(1500, received.size());
+        for (int i = 0; i < 1500; i++) {
+            Assertions.assertEquals(String.valueOf(i), received.get(i));
+        }
+        Assertions.assertEquals(0, appender.getSpillBacklogBytes());
+    }
+
+    @Test
+    void stopTimeoutLeavesClosingToWorker(@TempDir File dir) throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        List<byte[]> received = new CopyOnWriteArrayList<>();
+        LogShipper stuck = new LogShipper() {
+            @Override
+            public void send(List<byte[]> events) throws IOException {
+                if (closed.getCount() == 0) {
+                    throw new IOException("已关闭");
+                }
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.addAll(events);
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+        LoggerContext context = new LoggerContext();
+        AsyncBatchLogstashAppender appender = new AsyncBatchLogstashAppender();
+        appender.setContext(context);
+        appender.setShipper(stuck);
+        appender.setBatchSize(10);
+        appender.setFlushIntervalMillis(10);
+        appender.setMaxFlushTimeMillis(100);
+        appender.setSpillDirectory(dir.getAbsolutePath());
+        appender.setSpillSegmentSize(64 * 1024);
+        appender.start();
+        Logger logger = context.getLogger(AsyncBatchLogstashAppenderTests.class);
+        logger.addAppender(appender);
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("{}", i);
+        }
+        Assertions.assertTrue(sending.await(5, TimeUnit.SECONDS));
+        appender.stop();
+        Assertions.assertEquals(1, closed.getCount(), "后台线程还在发送，不能关闭 shipper");
+        boolean warned = false;
+        for (Status status : context.getStatusManager().getCopyOfStatusList()) {
+            warned |= status.getLevel() == Status.WARN && status.getMessage().contains("没有发送完");
+        }
+        Assertions.assertTrue(warned);
+
+        release.countDown();
+        Assertions.assertTrue(closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(100, received.size());
+        Assertions.assertEquals(0, appender.getDroppedCount());
+    }
+
+    private static void readLines(ServerSocket server, List<String> lines) {
+        try (Socket socket = server.accept();
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException ignored) {
+            // 测试结束
+        }
+    }
+}
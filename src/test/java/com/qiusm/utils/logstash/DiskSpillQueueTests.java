@@ -0,0 +1,97 @@
+package com.qiusm.utils.logstash;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author qiushengming
+ */
+public class DiskSpillQueueTests {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void rotateAndReplayInOrder() throws IOException {
+        DiskSpillQueue queue = new DiskSpillQueue(dir, 4096, 1024 * 1024, DiskSpillQueue.FsyncPolicy.NONE, 0);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(queue.append(("event-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        Assertions.assertTrue(queue.getDiskBytes() > 4096, "应该已经换段");
+
+        int expected = 0;
+        DiskSpillQueue.Batch batch = queue.read(300);
+        // 未提交时重复读取得到同一批
+        Assertions.assertEquals(300, queue.read(300).getRecords().size());
+        while (!batch.isEmpty()) {
+            for (byte[] record : batch.getRecords()) {
+                Assertions.assertEquals("event-" + expected++, new String(record, StandardCharsets.UTF_8));
+            }
+            queue.commit(batch);
+            batch = queue.read(300);
+        }
+        Assertions.assertEquals(1000, expected);
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertEquals(4096, queue.getDiskBytes(), "消费完的段应该删除");
+        queue.close();
+    }
+
+    @Test
+    void recoverAfterRestart() throws IOException {
+        DiskSpillQueue queue = new DiskSpillQueue(dir, 4096, 1024 * 1024, DiskSpillQueue.FsyncPolicy.EVERY_APPEND, 0);
+        for (int i = 0; i < 500; i++) {
+            queue.append(("event-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        queue.commit(queue.read(100));
+        queue.close();
+
+        DiskSpillQueue reopened = new DiskSpillQueue(dir, 4096, 1024 * 1024, DiskSpillQueue.FsyncPolicy.EVERY_APPEND, 0);
+        reopened.append("event-500".getBytes(StandardCharsets.UTF_8));
+        List<byte[]> records = reopened.read(1000).getRecords();
+        Assertions.assertEquals(401, records.size());
+        Assertions.assertEquals("event-100", new String(records.get(0), StandardCharsets.UTF_8));
+        Assertions.assertEquals("event-500", new String(records.get(400), StandardCharsets.UTF_8));
+        reopened.close();
+    }
+
+    @Test
+    void rejectWhenFull() throws IOException {
+        DiskSpillQueue queue = new DiskSpillQueue(dir, 1024, 2048, DiskSpillQueue.FsyncPolicy.NONE, 0);
+        byte[] record = new byte[100];
+        int accepted = 0;
+        while (queue.append(record)) {
+            accepted++;
+        }
+        Assertions.assertTrue(accepted > 0 && accepted < 21);
+        Assertions.assertEquals(2048, queue.getDiskBytes());
+        queue.close();
+    }
+
+    @Test
+    void intervalFsyncWhenIdle() throws Exception {
+        DiskSpillQueue queue = new DiskSpillQueue(dir, 4096, 1024 * 1024, DiskSpillQueue.FsyncPolicy.INTERVAL, 200);
+        queue.append("event-0".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertTrue(queue.isDirty(), "间隔未到，append 不刷盘");
+        Assertions.assertFalse(queue.fsyncIfDue());
+        Assertions.assertTrue(queue.isDirty());
+
+        // 之后没有新的 append，空闲检查时补刷
+        TimeUnit.MILLISECONDS.sleep(250);
+        Assertions.assertTrue(queue.fsyncIfDue());
+        Assertions.assertFalse(queue.isDirty());
+        Assertions.assertFalse(queue.fsyncIfDue(), "没有新写入不重复刷盘");
+        queue.close();
+
+        DiskSpillQueue none = new DiskSpillQueue(new File(dir, "none"), 4096, 1024 * 1024, DiskSpillQueue.FsyncPolicy.NONE, 0);
+        none.append("event-0".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertFalse(none.fsyncIfDue());
+        none.close();
+    }
+}
@@ -0,0 +1,177 @@
+package com.qiusm.utils.logstash;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 使用本地 HTTP 服务模拟 ES 的 _bulk 接口
+ *
+ * @author qiushengming
+ */
+public class ElasticsearchBulkShipperTests {
+
+    @TempDir
+    File dir;
+
+    private HttpServer server;
+
+    /**
+     * 每个请求收到的 NDJSON 行
+     */
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * 第 1 个请求整体 429，第 2 个请求第一条 429，之后都成功
+     */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/_bulk", exchange -> {
+            Assertions.assertEquals("gzip", exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            Assertions.assertEquals("application/x-ndjson", exchange.getRequestHeaders().getFirst("Content-Type"));
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(exchange.getRequestBody()), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            requests.add(lines);
+
+            int call = calls.incrementAndGet();
+            int status = 200;
+            StringBuilder body = new StringBuilder();
+            if (call == 1) {
+                status = 429;
+                body.append("{\"error\":\"es_rejected_execution_exception\"}");
+            } else if (call == 2) {
+                body.append("{\"errors\":true,\"items\":[");
+                for (int i = 0; i < lines.size() / 2; i++) {
+                    body.append(i == 0 ? "" : ",").append("{\"index\":{\"status\":").append(i == 0 ? 429 : 201).append("}}");
+                }
+                body.append("]}");
+            } else {
+                body.append("{\"errors\":false}");
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void bulkWithRetry() throws IOException {
+        ElasticsearchBulkShipper shipper = new ElasticsearchBulkShipper("http://localhost:" + server.getAddress().getPort());
+        shipper.setMaxActions(10);
+        shipper.setRetryBackoffMillis(10);
+
+        LogEventJsonEncoder encoder = new LogEventJsonEncoder("utils-test");
+        List<byte[]> events = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            JSONObject json = new JSONObject(true);
+            json.put("@timestamp", "2022-05-24T17:35:12.200+08:00");
+            json.put("app_name", encoder.getAppName());
+            json.put("msg", "测试日志输出：" + i);
+            events.add(JSON.toJSONBytes(json));
+        }
+        shipper.send(events);
+        shipper.close();
+
+        // 10 条请求 429 整体重试，再有 1 条 429 单独重试，之后 10 + 5
+        Assertions.assertEquals(5, requests.size());
+        Assertions.assertEquals(20, requests.get(0).size());
+        Assertions.assertEquals(20, requests.get(1).size());
+        Assertions.assertEquals(2, requests.get(2).size());
+        Assertions.assertEquals(10, requests.get(4).size());
+        Assertions.assertEquals(11, shipper.getRetriedCount());
+        Assertions.assertEquals(0, shipper.getRejectedCount());
+
+        JSONObject action = JSON.parseObject(requests.get(0).get(0));
+        Assertions.assertTrue(action.getJSONObject("index").getString("_index").startsWith("luyun-"));
+        JSONObject retried = JSON.parseObject(requests.get(2).get(1));
+        Assertions.assertEquals("测试日志输出：0", retried.getString("msg"));
+        Assertions.assertEquals("utils-test", retried.getString("app_name"));
+    }
+
+    @Test
+    void replayedEventsGoToTheirOwnDayIndex() throws IOException {
+        // 跳过 429，直接成功
+        calls.set(2);
+        ElasticsearchBulkShipper shipper = new ElasticsearchBulkShipper("http://localhost:" + server.getAddress().getPort());
+
+        // 前一天写入磁盘的日志，今天才补发
+        long now = System.currentTimeMillis();
+        long yesterday = now - TimeUnit.DAYS.toMillis(1);
+        LogEventJsonEncoder encoder = new LogEventJsonEncoder("utils-test");
+        DiskSpillQueue spill = new DiskSpillQueue(dir, 4096, 1024 * 1024, DiskSpillQueue.FsyncPolicy.NONE, 0);
+        spill.append(encoder.encode(event(yesterday, "昨天的日志")));
+        spill.append(encoder.encode(event(now, "今天的日志")));
+        // 字段顺序不同也能取到 @timestamp
+        spill.append("{\"msg\":\"其他来源\",\"@timestamp\":\"2022-05-24T02:00:00.000+08:00\"}"
+                .getBytes(StandardCharsets.UTF_8));
+        DiskSpillQueue.Batch batch = spill.read(10);
+        shipper.send(batch.getRecords());
+        spill.commit(batch);
+        spill.close();
+        shipper.close();
+
+        Assertions.assertEquals(1, requests.size());
+        List<String> lines = requests.get(0);
+        Assertions.assertEquals(6, lines.size());
+        Assertions.assertEquals(index(yesterday), JSON.parseObject(lines.get(0)).getJSONObject("index").getString("_index"));
+        Assertions.assertEquals("昨天的日志", JSON.parseObject(lines.get(1)).getString("msg"));
+        Assertions.assertEquals(index(now), JSON.parseObject(lines.get(2)).getJSONObject("index").getString("_index"));
+        // 东八区凌晨 2 点是 UTC 前一天
+        Assertions.assertEquals("luyun-2022.05.23", JSON.parseObject(lines.get(4)).getJSONObject("index").getString("_index"));
+    }
+
+    private static LoggingEvent event(long timestamp, String msg) {
+        LoggerContext context = new LoggerContext();
+        LoggingEvent event = new LoggingEvent(ElasticsearchBulkShipperTests.class.getName(),
+                context.getLogger(ElasticsearchBulkShipperTests.class), Level.INFO, msg, null, null);
+        event.setTimeStamp(timestamp);
+        return event;
+    }
+
+    private static String index(long timestamp) {
+        return "luyun-" + Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate()
+                .format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.qiusm.utils.logstash;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author qiushengming
+ */
+public class SamplingTurboFilterTests {
+
+    private LoggerContext context;
+
+    private SamplingTurboFilter filter;
+
+    private ListAppender<ILoggingEvent> appender;
+
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        filter = new SamplingTurboFilter();
+        filter.setContext(context);
+        filter.setThreshold(10);
+        filter.setSampleRate(100);
+        filter.setWindowMillis(60000);
+        // 测试里手动 flush
+        filter.setSummaryIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        filter.start();
+        context.addTurboFilter(filter);
+
+        appender = new ListAppender<>();
+        appender.setContext(context);
+        appender.start();
+        logger = context.getLogger(SamplingTurboFilterTests.class);
+        logger.setLevel(Level.DEBUG);
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.stop();
+    }
+
+    @Test
+    void sampleAboveThresholdWithoutFormatting() {
+        AtomicInteger formatted = new AtomicInteger();
+        Object arg = new Object() {
+            @Override
+            public String toString() {
+                return String.valueOf(formatted.incrementAndGet());
+            }
+        };
+        for (int i = 0; i < 1010; i++) {
+            logger.info("测试日志输出：{}", arg);
+        }
+        // 前 10 条 + 之后每 100 条一条
+        Assertions.assertEquals(20, appender.list.size());
+        for (ILoggingEvent event : appender.list) {
+            event.getFormattedMessage();
+        }
+        Assertions.assertEquals(20, formatted.get());
+        Assertions.assertEquals(990, filter.getSuppressedCount());
+
+        // 其他调用点不受影响
+        logger.info("另一条日志");
+        Assertions.assertEquals(21, appender.list.size());
+        Assertions.assertEquals(2, filter.getSiteCount());
+
+        filter.flush();
+        ILoggingEvent summary = appender.list.get(appender.list.size() - 1);
+        Assertions.assertEquals(SamplingTurboFilter.SUMMARY, summary.getMarker());
+        Assertions.assertEquals(Level.INFO, summary.getLevel());
+        Assertions.assertTrue(summary.getFormattedMessage().contains("抑制了 990 条日志：测试日志输出：{}"),
+                summary.getFormattedMessage());
+        // 没有新的抑制就不再汇总
+        filter.flush();
+        Assertions.assertEquals(22, appender.list.size());
+    }
+
+    @Test
+    void errorsWithStackTraceAlwaysPass() {
+        // 默认只采样 INFO 及以下，这里把 ERROR 也纳入采样
+        filter.stop();
+        filter.setLevel("ERROR");
+        filter.start();
+        for (int i = 0; i < 500; i++) {
+            logger.error("出错了：{}", i, new NullPointerException("test null"));
+        }
+        Assertions.assertEquals(500, appender.list.size());
+        for (int i = 0; i < 500; i++) {
+            logger.error("出错了：{}", i);
+        }
+        // 没有异常的照常采样：前 10 条 + 490 条里每 100 条一条
+        Assertions.assertEquals(514, appender.list.size());
+    }
+
+    @Test
+    void rateLimitResetsEachWindowAndIgnoresDisabledLevels() {
+        AtomicLong now = new AtomicLong(1000);
+        filter.stop();
+        filter.setSampleRate(0);
+        filter.setWindowMillis(50);
+        filter.setClock(now::get);
+        filter.start();
+        logger.setLevel(Level.INFO);
+        for (int i = 0; i < 100; i++) {
+            logger.debug("不会输出的日志：{}", i);
+            logger.info("测试日志输出：{}", i);
+        }
+        Assertions.assertEquals(10, appender.list.size());
+        Assertions.assertEquals(1, filter.getSiteCount());
+
+        // 窗口内还是全部拒绝
+        now.addAndGet(49);
+        logger.info("测试日志输出：{}", 0);
+        Assertions.assertEquals(10, appender.list.size());
+
+        now.addAndGet(1);
+        for (int i = 0; i < 100; i++) {
+            logger.info("测试日志输出：{}", i);
+        }
+        Assertions.assertEquals(20, appender.list.size());
+    }
+}
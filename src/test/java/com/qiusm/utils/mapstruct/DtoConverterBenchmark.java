@@ -0,0 +1,118 @@
+package com.qiusm.utils.mapstruct;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.copier.CopyOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * MapStruct 生成代码与反射拷贝的对比 <br>
+ * 1. hutool {@link BeanUtil} 会把 Date 转成 String，Spring {@link BeanUtils} 跳过类型不一致的 date，再手动补上，保证三者结果一致 <br>
+ * 2. 运行 main 方法即可，数据量由 size 参数控制 <br>
+ *
+ * @author qiushengming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoConverterBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private List<Domain> domains;
+
+    private final ParallelMappingExecutor parallelExecutor = new ParallelMappingExecutor();
+
+    private final TypeConversionWorker worker = new TypeConversionWorker();
+
+    private final CopyOptions hutoolOptions = CopyOptions.create().setIgnoreProperties("ignore");
+
+    @Setup
+    public void setup() {
+        domains = new ArrayList<>(size);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Domain domain = new Domain();
+            domain.setIntValue(i);
+            domain.setStr("str-" + i);
+            domain.setDate(new Date(now - i * 1000L));
+            domain.setBooleanValue((i & 1) == 0);
+            domain.setIgnore("ignore");
+            domains.add(domain);
+        }
+    }
+
+    @Benchmark
+    public List<Dto> mapstructSingle() {
+        List<Dto> result = new ArrayList<>();
+        for (Domain domain : domains) {
+            result.add(IDtoConverter.INSTANCE.toDto(domain));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Dto> mapstructList() {
+        return IDtoConverter.INSTANCE.toDtoList(domains);
+    }
+
+    @Benchmark
+    public List<Dto> mapstructStream() {
+        return IDtoConverter.INSTANCE.toDtoStream(domains.stream()).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Dto> mapstructParallel() {
+        return parallelExecutor.toDtoList(domains);
+    }
+
+    @Benchmark
+    public List<Dto> hutoolBeanUtil() {
+        List<Dto> result = new ArrayList<>(domains.size());
+        for (Domain domain : domains) {
+            result.add(BeanUtil.toBean(domain, Dto.class, hutoolOptions));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Dto> springBeanUtils() {
+        List<Dto> result = new ArrayList<>(domains.size());
+        for (Domain domain : domains) {
+            Dto dto = new Dto();
+            BeanUtils.copyProperties(domain, dto, "ignore");
+            dto.setDate(worker.dataToStr(domain.getDate()));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DtoConverterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -2,9 +2,15 @@ package com.qiusm.utils.mapstruct;
 
 import com.qiusm.utils.UtilsApplicationTests;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * @author qiushengming
@@ -25,4 +31,52 @@ public class MapStructTest extends UtilsApplicationTests {
         Dto dto = IDtoConverter.INSTANCE.toDto(domain);
         log.info("{}", dto);
     }
+
+    /**
+     * 批量转换与单个转换结果一致
+     */
+    @Test
+    public void testList() {
+        List<Domain> domains = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Domain domain = new Domain();
+            domain.setDate(i == 0 ? null : new Date());
+            domain.setIntValue(i);
+            domain.setStr("str" + i);
+            domains.add(domain);
+        }
+
+        List<Dto> dtoList = IDtoConverter.INSTANCE.toDtoList(domains);
+        List<Dto> dtoStream = IDtoConverter.INSTANCE.toDtoStream(domains.stream()).collect(Collectors.toList());
+        Assertions.assertEquals(domains.size(), dtoList.size());
+        for (int i = 0; i < domains.size(); i++) {
+            Assertions.assertEquals(IDtoConverter.INSTANCE.toDto(domains.get(i)), dtoList.get(i));
+            Assertions.assertEquals(dtoList.get(i), dtoStream.get(i));
+        }
+        Assertions.assertNull(dtoList.get(0).getDate());
+    }
+
+    /**
+     * 并行转换保持顺序，小集合与非 RandomAccess 集合同样可用
+     */
+    @Test
+    public void testParallel() {
+        List<Domain> domains = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            Domain domain = new Domain();
+            domain.setDate(new Date());
+            domain.setIntValue(i);
+            domains.add(domain);
+        }
+
+        ParallelMappingExecutor executor = new ParallelMappingExecutor(ForkJoinPool.commonPool(), 1000);
+        List<Dto> dtoList = executor.toDtoList(domains);
+        Assertions.assertEquals(domains.size(), dtoList.size());
+        for (int i = 0; i < dtoList.size(); i++) {
+            Assertions.assertEquals(i, dtoList.get(i).getIntValue());
+        }
+
+        List<Dto> small = executor.toDtoList(new LinkedList<>(domains.subList(0, 10)));
+        Assertions.assertEquals(9, small.get(9).getIntValue());
+    }
 }
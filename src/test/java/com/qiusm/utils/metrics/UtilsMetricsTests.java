@@ -0,0 +1,51 @@
+package com.qiusm.utils.metrics;
+
+import com.qiusm.utils.Pinyin4jUtil;
+import com.qiusm.utils.SnowflakeUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author qiushengming
+ */
+public class UtilsMetricsTests {
+
+    @AfterEach
+    void reset() {
+        UtilsMetrics.install(MetricsBackend.NOOP);
+    }
+
+    @Test
+    void noopByDefault() {
+        UtilsMetrics.Counter counter = UtilsMetrics.counter("utils.test", "测试");
+        counter.increment();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UtilsMetrics.install(new MicrometerMetricsBackend(registry));
+        counter.increment(2);
+        // 切换实现后重新绑定，之前的计数不会补上
+        Assertions.assertEquals(2, registry.get("utils.test").counter().count());
+    }
+
+    @Test
+    void instrumentUtils() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UtilsMetrics.install(new MicrometerMetricsBackend(registry));
+
+        for (int i = 0; i < 5000; i++) {
+            SnowflakeUtil.getInstance().nextId();
+        }
+        Assertions.assertEquals(5000, registry.get("utils.snowflake.ids").counter().count());
+
+        Assertions.assertEquals("zhongguo", Pinyin4jUtil.getPingYin("中国"));
+        Assertions.assertEquals("zhongwen", Pinyin4jUtil.getPingYin("中文"));
+        Assertions.assertEquals("ZG", Pinyin4jUtil.converterToFirstSpell("中国"));
+        Assertions.assertEquals("zgA", Pinyin4jUtil.converterToFirstSpellSmal("中国A"));
+        Assertions.assertEquals(4, registry.get("utils.pinyin.conversions").counter().count());
+        double hits = registry.get("utils.pinyin.cache").tag("result", "hit").counter().count();
+        double misses = registry.get("utils.pinyin.cache").tag("result", "miss").counter().count();
+        Assertions.assertEquals(8, hits + misses);
+        Assertions.assertTrue(hits >= 1, "“中”第二次转换应该命中缓存");
+    }
+}
@@ -0,0 +1,28 @@
+package com.qiusm.utils.selenium;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author qiushengming
+ */
+public class CrawlMetricsTests {
+
+    @Test
+    void urlStatsKeepRecentUrlsOnly() {
+        CrawlMetrics metrics = new CrawlMetrics(100);
+        for (int i = 0; i < 1000; i++) {
+            metrics.recordAttempt("http://a.test/item/" + i, 10, true);
+            // 一直在访问的 url 不会被淘汰
+            metrics.recordAttempt("http://a.test/", 10, i % 2 == 0);
+        }
+        Assertions.assertEquals(100, metrics.getUrlStats().size());
+        Assertions.assertNull(metrics.getUrlStat("http://a.test/item/0"));
+        Assertions.assertEquals(1, metrics.getUrlStat("http://a.test/item/999").getAttempts());
+        Assertions.assertEquals(1000, metrics.getUrlStat("http://a.test/").getAttempts());
+        Assertions.assertEquals(500, metrics.getUrlStat("http://a.test/").getFailures());
+        // 汇总不受淘汰影响
+        Assertions.assertEquals(1500, metrics.getSuccessCount());
+        Assertions.assertEquals(500, metrics.getFailureCount());
+    }
+}
@@ -0,0 +1,119 @@
+package com.qiusm.utils.selenium;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 使用假的浏览器客户端测试抓取调度
+ *
+ * @author qiushengming
+ */
+@Slf4j
+public class CrawlSchedulerTests {
+
+    @Test
+    void dedupAndSpreadAcrossClients() throws InterruptedException {
+        List<FakeClient> clients = Arrays.asList(new FakeClient(1, 50), new FakeClient(2, 50), new FakeClient(3, 50));
+        CrawlScheduler scheduler = new CrawlScheduler(clients, 0, 0, 0);
+        for (int i = 0; i < 30; i++) {
+            scheduler.submit("http://host" + i + ".test/page");
+        }
+        Assertions.assertFalse(scheduler.submit("http://host0.test/page#anchor"));
+        scheduler.start();
+        Assertions.assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+        scheduler.shutdown();
+
+        Assertions.assertEquals(30, scheduler.getMetrics().getSuccessCount());
+        for (FakeClient client : clients) {
+            Assertions.assertFalse(client.visits.isEmpty(), "每个浏览器都应该分到任务");
+        }
+        log.info("avg:{}ms, max:{}ms", scheduler.getMetrics().getAvgLatencyMillis(),
+                scheduler.getMetrics().getMaxLatencyMillis());
+    }
+
+    @Test
+    void politenessPerHost() throws InterruptedException {
+        List<FakeClient> clients = Arrays.asList(new FakeClient(1, 0), new FakeClient(2, 0));
+        CrawlScheduler scheduler = new CrawlScheduler(clients, 100, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit("http://same.test/page" + i);
+        }
+        scheduler.start();
+        Assertions.assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+        scheduler.shutdown();
+
+        List<Long> times = new ArrayList<>();
+        clients.forEach(c -> times.addAll(c.visits.values()));
+        times.sort(Long::compare);
+        Assertions.assertEquals(5, times.size());
+        for (int i = 1; i < times.size(); i++) {
+            Assertions.assertTrue(times.get(i) - times.get(i - 1) >= 90, "同一 host 的访问间隔过短");
+        }
+    }
+
+    @Test
+    void retryWithBackoff() throws InterruptedException {
+        FakeClient client = new FakeClient(1, 0);
+        client.failTimes.put("http://a.test/flaky", new AtomicInteger(2));
+        client.failTimes.put("http://a.test/dead", new AtomicInteger(Integer.MAX_VALUE));
+        CrawlScheduler scheduler = new CrawlScheduler(Arrays.asList(client), 0, 2, 10);
+        scheduler.submit("http://a.test/flaky");
+        scheduler.submit("http://a.test/dead");
+        scheduler.start();
+        Assertions.assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+        scheduler.shutdown();
+
+        CrawlMetrics metrics = scheduler.getMetrics();
+        Assertions.assertEquals(1, metrics.getSuccessCount());
+        Assertions.assertEquals(1, metrics.getAbandonedCount());
+        Assertions.assertEquals(3, metrics.getUrlStat("http://a.test/flaky").getAttempts());
+        Assertions.assertEquals(3, metrics.getUrlStat("http://a.test/dead").getFailures());
+    }
+
+    static class FakeClient implements WebDriverClient {
+        private final Integer clientId;
+        private final long latencyMillis;
+        private final Map<String, Long> visits = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> failTimes = new ConcurrentHashMap<>();
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+
+        FakeClient(Integer clientId, long latencyMillis) {
+            this.clientId = clientId;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Integer getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public boolean getUrl(String url) {
+            requests.add(url);
+            visits.put(url + "@" + requests.size(), System.currentTimeMillis());
+            if (latencyMillis > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            AtomicInteger fail = failTimes.get(url);
+            return fail == null || fail.getAndDecrement() <= 0;
+        }
+
+        @Override
+        public void quit() {
+        }
+    }
+}